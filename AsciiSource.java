@@ -0,0 +1,118 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+// CharSequence view of ASCII bytes. RecSPL sources are pure ASCII, so the Lexer can scan a
+// memory-mapped file byte by byte through this view without decoding it to UTF-16 first.
+public class AsciiSource implements CharSequence {
+    private static final long ONES = 0x0101010101010101L;
+    private static final long HIGH_BITS = 0x8080808080808080L;
+
+    private final ByteBuffer bytes;
+    private final ByteBuffer words; // Little-endian view for reading eight bytes at a time
+    private final int offset;
+    private final int length;
+
+    public AsciiSource(ByteBuffer bytes) {
+        this(bytes, bytes.duplicate().order(ByteOrder.LITTLE_ENDIAN), 0, bytes.limit());
+    }
+
+    private AsciiSource(ByteBuffer bytes, ByteBuffer words, int offset, int length) {
+        this.bytes = bytes;
+        this.words = words;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    // Maps the file read-only and returns a view of it, or decodes it into a String if it
+    // contains any non-ASCII byte
+    public static CharSequence map(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Source file too large to map: " + path);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (isAscii(buffer)) {
+                return new AsciiSource(buffer);
+            }
+        }
+        return new String(Files.readAllBytes(path));
+    }
+
+    private static boolean isAscii(ByteBuffer buffer) {
+        for (int i = 0; i < buffer.limit(); i++) {
+            if (buffer.get(i) < 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    // Index of the first char in [from, limit) that is not whitespace in the sense of
+    // Character.isWhitespace, or the last eight-byte boundary before limit; the caller
+    // finishes with scalar code. Each step classifies eight bytes at once (SWAR).
+    public int skipWhitespace(int from, int limit) {
+        int index = from;
+        while (index + 8 <= limit) {
+            long word = words.getLong(offset + index);
+            long miss = ~(inRange(word, 9, 13) | inRange(word, 28, 32)) & HIGH_BITS;
+            if (miss != 0) {
+                return index + (Long.numberOfTrailingZeros(miss) >>> 3);
+            }
+            index += 8;
+        }
+        return index;
+    }
+
+    // Same as skipWhitespace for the [a-z0-9]* tail of a VNAME or FNAME
+    public int skipIdentifierTail(int from, int limit) {
+        int index = from;
+        while (index + 8 <= limit) {
+            long word = words.getLong(offset + index);
+            long miss = ~(inRange(word, 'a', 'z') | inRange(word, '0', '9')) & HIGH_BITS;
+            if (miss != 0) {
+                return index + (Long.numberOfTrailingZeros(miss) >>> 3);
+            }
+            index += 8;
+        }
+        return index;
+    }
+
+    // Sets the high bit of every byte lane whose value lies in [low, high]. Lanes are masked
+    // to seven bits first so the additions never carry into the next lane; lanes with the
+    // high bit set (non-ASCII) never match.
+    private static long inRange(long word, int low, int high) {
+        long low7 = word & ~HIGH_BITS;
+        long atLeastLow = low7 + ONES * (0x80 - low);
+        long aboveHigh = low7 + ONES * (0x7F - high);
+        return atLeastLow & ~aboveHigh & ~word & HIGH_BITS;
+    }
+
+    @Override
+    public int length() {
+        return length;
+    }
+
+    @Override
+    public char charAt(int index) {
+        return (char) bytes.get(offset + index);
+    }
+
+    @Override
+    public CharSequence subSequence(int start, int end) {
+        return new AsciiSource(bytes, words, offset + start, end - start);
+    }
+
+    @Override
+    public String toString() {
+        byte[] text = new byte[length];
+        bytes.get(offset, text);
+        return new String(text, StandardCharsets.US_ASCII);
+    }
+}
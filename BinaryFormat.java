@@ -0,0 +1,304 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Compact binary interchange format for token streams and syntax trees, used to hand them
+// between pipeline stages without going through XML. A file is the magic "RSPL", a format
+// version, a section tag ('T' tokens or 'A' tree), a deduplicated string table and then
+// the section body, with all integers varint-encoded:
+//   tokens: count, then per token its TokenType ordinal followed by a string index unless
+//           the type has a single fixed spelling
+//   tree:   nodes in preorder as (flags, type index, [declared type index], [value index],
+//           [child count]), where a null child is written as flags 0
+// Version 2 added the declared type; version 1 files never set its flag and still read.
+public class BinaryFormat {
+    public static final int VERSION = 2;
+    private static final byte[] MAGIC = { 'R', 'S', 'P', 'L' };
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private static final int PRESENT = 1; // Node flags
+    private static final int HAS_VALUE = 2;
+    private static final int IS_NAME = 4; // Leaf that carried an interned symbol
+    private static final int HAS_TYPE = 8; // Declaration that kept its declared or return type
+
+    public static void writeTokens(TokenBuffer tokens, OutputStream stream) throws IOException {
+        StringTable strings = new StringTable();
+        int[] indexes = new int[tokens.size()];
+        for (int i = 0; i < tokens.size(); i++) {
+            indexes[i] = Lexer.fixedSpelling(tokens.type(i)) == null ? strings.add(tokens.text(i)) : -1;
+        }
+
+        Output out = new Output(stream);
+        out.header('T');
+        strings.write(out);
+        out.varint(tokens.size());
+        for (int i = 0; i < tokens.size(); i++) {
+            out.varint(tokens.type(i).ordinal());
+            if (indexes[i] >= 0) {
+                out.varint(indexes[i]);
+            }
+        }
+        out.flush();
+    }
+
+    // Rebuilds a token buffer whose source is the string table laid out as text. Offsets
+    // therefore point into that table rather than the original source file.
+    public static TokenBuffer readTokens(InputStream stream, Interner interner) throws IOException {
+        Input in = new Input(stream);
+        in.header('T');
+        String[] strings = in.strings();
+        StringBuilder text = new StringBuilder();
+        int[] offsets = new int[strings.length];
+        for (int i = 0; i < strings.length; i++) {
+            offsets[i] = text.length();
+            text.append(strings[i]).append(' ');
+        }
+
+        int count = in.varint();
+        TokenBuffer tokens = new TokenBuffer(text, interner, count);
+        for (int i = 0; i < count; i++) {
+            TokenType type = TYPES[in.varint()];
+            String fixed = Lexer.fixedSpelling(type);
+            if (fixed != null) {
+                tokens.add(type, 0, fixed.length());
+                continue;
+            }
+            int index = in.varint();
+            int symbol = interner != null && (type == TokenType.VNAME || type == TokenType.FNAME)
+                    ? interner.intern(strings[index])
+                    : -1;
+            tokens.add(type, offsets[index], strings[index].length(), symbol);
+        }
+        return tokens;
+    }
+
+    public static void writeTree(Parser.Node root, OutputStream stream) throws IOException {
+        // Preorder walk with an explicit stack, as trees can be very deep
+        StringTable strings = new StringTable();
+        List<Parser.Node> preorder = new ArrayList<>();
+        List<Parser.Node> stack = new ArrayList<>();
+        stack.add(root);
+        while (!stack.isEmpty()) {
+            Parser.Node node = stack.remove(stack.size() - 1);
+            preorder.add(node);
+            if (node == null) {
+                continue;
+            }
+            strings.add(node.type);
+            if (node.declaredType != null) {
+                strings.add(node.declaredType);
+            }
+            if (node.value != null) {
+                strings.add(node.value);
+            }
+            for (int i = node.children.size() - 1; i >= 0; i--) {
+                stack.add(node.children.get(i));
+            }
+        }
+
+        Output out = new Output(stream);
+        out.header('A');
+        strings.write(out);
+        for (Parser.Node node : preorder) {
+            if (node == null) {
+                out.varint(0);
+                continue;
+            }
+            int flags = PRESENT | (node.value != null ? HAS_VALUE : 0) | (node.symbol >= 0 ? IS_NAME : 0)
+                    | (node.declaredType != null ? HAS_TYPE : 0);
+            out.varint(flags);
+            out.varint(strings.add(node.type));
+            if (node.declaredType != null) {
+                out.varint(strings.add(node.declaredType));
+            }
+            if (node.value != null) {
+                out.varint(strings.add(node.value));
+            } else {
+                out.varint(node.children.size());
+            }
+        }
+        out.flush();
+    }
+
+    // Rebuilds the tree; name leaves are re-interned into the given interner if there is one
+    public static Parser.Node readTree(InputStream stream, Interner interner) throws IOException {
+        Input in = new Input(stream);
+        in.header('A');
+        String[] strings = in.strings();
+
+        // Interior nodes wait on the stack until all their children have been read
+        List<Parser.Node[]> children = new ArrayList<>();
+        List<String> types = new ArrayList<>();
+        List<String> declaredTypes = new ArrayList<>();
+        int[] filled = new int[16];
+        Parser.Node result = null;
+        boolean done = false;
+        while (!done) {
+            int flags = in.varint();
+            Parser.Node node = null;
+            if (flags != 0) {
+                String type = strings[in.varint()];
+                String declaredType = (flags & HAS_TYPE) != 0 ? strings[in.varint()] : null;
+                if ((flags & HAS_VALUE) != 0) {
+                    node = new Parser.Node(type, strings[in.varint()]);
+                    if ((flags & IS_NAME) != 0 && interner != null) {
+                        node.symbol = interner.intern(node.value);
+                    }
+                } else {
+                    int count = in.varint();
+                    if (count > 0) {
+                        if (children.size() == filled.length) {
+                            filled = Arrays.copyOf(filled, filled.length * 2);
+                        }
+                        filled[children.size()] = 0;
+                        children.add(new Parser.Node[count]);
+                        types.add(type);
+                        declaredTypes.add(declaredType);
+                        continue;
+                    }
+                    node = new Parser.Node(type);
+                }
+                node.declaredType = declaredType;
+            }
+
+            // Attach the finished node to its parent, completing parents whose last child it was
+            while (true) {
+                int top = children.size() - 1;
+                if (top < 0) {
+                    result = node;
+                    done = true;
+                    break;
+                }
+                Parser.Node[] siblings = children.get(top);
+                siblings[filled[top]++] = node;
+                if (filled[top] < siblings.length) {
+                    break;
+                }
+                node = new Parser.Node(types.remove(top), children.remove(top));
+                node.declaredType = declaredTypes.remove(top);
+            }
+        }
+        return result;
+    }
+
+    // Strings in first-use order, each stored once
+    private static class StringTable {
+        private final Map<String, Integer> indexes = new HashMap<>();
+        private final List<String> strings = new ArrayList<>();
+
+        int add(String value) {
+            Integer index = indexes.get(value);
+            if (index == null) {
+                index = strings.size();
+                indexes.put(value, index);
+                strings.add(value);
+            }
+            return index;
+        }
+
+        void write(Output out) throws IOException {
+            out.varint(strings.size());
+            for (String value : strings) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                out.varint(bytes.length);
+                out.out.write(bytes);
+            }
+        }
+    }
+
+    private static class Output {
+        final OutputStream out;
+
+        Output(OutputStream stream) {
+            this.out = new BufferedOutputStream(stream, 1 << 16);
+        }
+
+        void header(char section) throws IOException {
+            out.write(MAGIC);
+            out.write(VERSION);
+            out.write(section);
+        }
+
+        // Unsigned LEB128: seven bits per byte, high bit set on all but the last byte
+        void varint(int value) throws IOException {
+            while ((value & ~0x7F) != 0) {
+                out.write((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            out.write(value);
+        }
+
+        void flush() throws IOException {
+            out.flush();
+        }
+    }
+
+    private static class Input {
+        final InputStream in;
+
+        Input(InputStream stream) {
+            this.in = new BufferedInputStream(stream, 1 << 16);
+        }
+
+        void header(char section) throws IOException {
+            for (byte b : MAGIC) {
+                if (read() != b) {
+                    throw new IOException("Not a RecSPL binary file");
+                }
+            }
+            int version = read();
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported binary format version " + version);
+            }
+            int actual = read();
+            if (actual != section) {
+                throw new IOException("Expected section '" + section + "' but found '" + (char) actual + "'");
+            }
+        }
+
+        String[] strings() throws IOException {
+            String[] strings = new String[varint()];
+            for (int i = 0; i < strings.length; i++) {
+                byte[] bytes = new byte[varint()];
+                int read = 0;
+                while (read < bytes.length) {
+                    int n = in.read(bytes, read, bytes.length - read);
+                    if (n < 0) {
+                        throw new EOFException("Truncated string table");
+                    }
+                    read += n;
+                }
+                strings[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+            return strings;
+        }
+
+        int varint() throws IOException {
+            int value = 0;
+            for (int shift = 0; ; shift += 7) {
+                int b = read();
+                value |= (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+        }
+
+        private int read() throws IOException {
+            int b = in.read();
+            if (b < 0) {
+                throw new EOFException("Truncated binary file");
+            }
+            return b;
+        }
+    }
+}
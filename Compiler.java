@@ -1,40 +1,94 @@
+import java.io.IOException;
 import java.nio.file.*;
 import java.util.*;
+import java.util.concurrent.ForkJoinPool;
 
 public class Compiler {
+    private static CompilerTraceListener trace; // Null unless --trace was given
+    private static boolean stackSafe; // Set by --stack-safe, for very deeply nested programs
+    private static boolean hashCons; // Set by --hash-cons, to share repeated sub-expressions
+    private static boolean fastScan; // Set by --fast-scan, for word-at-a-time lexing of ASCII files
+
     public static void main(String[] args) {
-        String sourceCode = readSourceCode("C:\\Users\\User\\COS341\\sample_code.txt");
+        // Usage: Compiler [--trace trace.jsonl] [--stack-safe] [--hash-cons] [--fast-scan]
+        //                 [source-file | --tokens token-file.xml]
         // need to fix path for the executable file submission
+        String sourcePath = "C:\\Users\\User\\COS341\\sample_code.txt";
+        String tokenPath = null;
+        String tracePath = null;
+        for (int i = 0; i < args.length; i++) {
+            if (args[i].equals("--tokens") && i + 1 < args.length) {
+                tokenPath = args[++i];
+            } else if (args[i].equals("--trace") && i + 1 < args.length) {
+                tracePath = args[++i];
+            } else if (args[i].equals("--stack-safe")) {
+                stackSafe = true;
+            } else if (args[i].equals("--hash-cons")) {
+                hashCons = true;
+            } else if (args[i].equals("--fast-scan")) {
+                fastScan = true;
+            } else {
+                sourcePath = args[i];
+            }
+        }
 
-        // Lexer
-        Lexer lexer = new Lexer(sourceCode);
-        List<Lexer.Token> tokens = new ArrayList<>();
-        Lexer.Token token;
-        while ((token = lexer.nextToken()).type != TokenType.EOF) {
-            System.out.println("Token: " + token.value + " Type: " + token.type);
-            tokens.add(token);
+        if (tracePath == null) {
+            compile(sourcePath, tokenPath);
+            return;
+        }
+        try (JsonlTraceListener listener = new JsonlTraceListener(tracePath)) {
+            trace = listener;
+            compile(sourcePath, tokenPath);
+        } catch (IOException e) {
+            throw new RuntimeException("Error writing trace file: " + e.getMessage());
+        } finally {
+            trace = null;
+        }
+    }
+
+    private static void compile(String sourcePath, String tokenPath) {
+        Interner interner = new Interner();
+        Parser parser;
+        if (tokenPath != null) {
+            // Resume from a TOKENSTREAM file written by an earlier lexing job
+            parser = new Parser(readTokens(tokenPath, interner));
+        } else {
+            CharSequence sourceCode = readSourceCode(sourcePath);
+
+            // Lexer, pulled by the parser one token at a time. Names are interned to dense
+            // symbol IDs as they are lexed.
+            Lexer lexer = new Lexer(sourceCode, interner);
+            lexer.setFastScan(fastScan);
+            parser = new Parser(lexer);
+        }
+        parser.setTraceListener(trace);
+        parser.setStackSafe(stackSafe);
+        if (hashCons) {
+            parser.setNodeFactory(new NodeFactory());
         }
 
         // Parser
-        Parser parser = new Parser(tokens);
         Parser.Node ast = parser.parse();
-        try {
-            
-            System.out.println("AST: " + ast); // Print the AST for verification
-            //Scope Analyzer
-            ScopeAnalyzer scopeAnalyzer = new ScopeAnalyzer();
-            analyzeScopes(ast, scopeAnalyzer);
+        System.out.println("AST: " + ast); // Print the AST for verification
 
-        } catch (Exception e) {
-            System.err.println("Parsing Error: " + e.getMessage());
+        // Resolver: binds every variable use to its declaration's scope slot, and reports
+        // undeclared and duplicate variables
+        Resolver resolver = new Resolver(interner);
+        resolver.setTraceListener(trace);
+        resolver.resolve(ast);
+        for (String diagnostic : resolver.diagnostics()) {
+            System.err.println("Semantic Error: " + diagnostic);
         }
 
-        //Scope Analyzer
-        ScopeAnalyzer scopeAnalyzer = new ScopeAnalyzer();
-        analyzeScopes(ast, scopeAnalyzer);
+        // Semantic analysis: type and signature checks over the resolver's bindings, one
+        // task per function
+        SemanticAnalyzer analyzer = new SemanticAnalyzer(interner);
+        for (String diagnostic : analyzer.analyze(ast, resolver, ForkJoinPool.commonPool())) {
+            System.err.println("Semantic Error: " + diagnostic);
+        }
 
         // Type Checker
-        // TypeChecker typeChecker = new TypeChecker();
+        // TypeChecker typeChecker = new TypeChecker(interner);
         // checkTypes(ast, typeChecker);
 
         // Code Generator
@@ -44,81 +98,51 @@ public class Compiler {
         // System.out.println(targetCode);
     }
 
-    private static String readSourceCode(String path) {
+    private static CharSequence readSourceCode(String path) {
         try {
-            return new String(Files.readAllBytes(Paths.get(path)));
+            return AsciiSource.map(Paths.get(path));
         } catch (Exception e) {
             throw new RuntimeException("Error reading source file: " + e.getMessage());
         }
     }
 
-    private static void analyzeScopes(Parser.Node node, ScopeAnalyzer scopeAnalyzer) {
-        if (node == null) {
-            return; // Handle null node case to avoid NullPointerExceptions
-        }
-    
-        System.out.println("Analyzing Node: " + node.type); // Log the node being analyzed
-    
-        if (!node.type.equals("Program")) {
-            scopeAnalyzer.enterScope();
-            // Process all child nodes of the program node
-            for (Parser.Node child : node.children) {
-                analyzeScopes(child, scopeAnalyzer); // Analyze each child node
-            }
-            scopeAnalyzer.exitScope(); // Exit scope after processing all children
-        } else if (node.type.equals("GlobalVars")) {
-            System.out.println("Processing GlobalVars..."); // Log when processing GlobalVars
-            for (Parser.Node var : node.children) {
-                if (var.children.size() > 0) {
-                    String varName = var.children.get(0).type; // Get variable name
-                    scopeAnalyzer.declareGlobalVariable(varName); // Declare global variable
-                }
-            }
-        } else if (node.type.equals("FunctionDeclaration")) {
-            System.out.println("Processing FunctionDeclaration..."); // Log when processing FunctionDeclaration
-            String funcName = node.children.get(0).type; // Get function name
-            String[] parameters = new String[node.children.get(1).children.size()]; // Array to hold parameters
-            for (int i = 0; i < node.children.get(1).children.size(); i++) {
-                if (node.children.get(1).children.get(i).children.size() > 0) {
-                    parameters[i] = node.children.get(1).children.get(i).children.get(0).type; // Parameter names
-                }
-            }
-            scopeAnalyzer.declareFunction(funcName, parameters); // Declare the function
-            scopeAnalyzer.enterScope(); // Enter function scope
-            analyzeScopes(node.children.get(2), scopeAnalyzer); // Analyze the function body
-            scopeAnalyzer.exitScope(); // Exit function scope
-        } else {
-            // For all other node types, analyze children
-            for (Parser.Node child : node.children) {
-                analyzeScopes(child, scopeAnalyzer); 
-            }
+    private static TokenBuffer readTokens(String path, Interner interner) {
+        try {
+            return TokenStreamXml.read(path, interner);
+        } catch (Exception e) {
+            throw new RuntimeException("Error reading token file: " + e.getMessage());
         }
     }
-    
-    
-    
 
     private static void checkTypes(Parser.Node node, TypeChecker typeChecker) {
-        if (node.type.equals("GlobalVars")) {
-            for (Parser.Node var : node.children) {
-                String varType = var.children.get(1).type; // Assuming second child is the type
-                typeChecker.declareVariable(var.children.get(0).type, varType);
-            }
-        } else if (node.type.equals("Assignment")) {
-            String varName = node.children.get(0).type; // Variable name
-            String valueType = node.children.get(1).type; // Value type
-            typeChecker.checkAssignment(varName, valueType);
-        } else if (node.type.equals("FunctionCall")) {
-            List<String> argTypes = new ArrayList<>();
-            for (Parser.Node arg : node.children) {
-                argTypes.add(arg.type); // Assuming each child represents the argument type
-            }
-            String funcName = node.children.get(0).type; // Function name
-            typeChecker.checkFunctionCall(funcName, argTypes);
-        } else {
-            for (Parser.Node child : node.children) {
-                checkTypes(child, typeChecker);
-            }
+        switch (node.kind) {
+            case GLOBAL_VARS:
+                for (Parser.Node var : node.children) {
+                    if (var.symbol >= 0) {
+                        typeChecker.declareVariable(var.symbol, var.declaredType);
+                    } else {
+                        typeChecker.declareVariable(var.value, var.declaredType);
+                    }
+                }
+                break;
+            case ASSIGN:
+                String varName = node.children.get(0).type; // Variable name
+                String valueType = node.children.get(1).type; // Value type
+                typeChecker.checkAssignment(varName, valueType);
+                break;
+            case FUNCTION_CALL:
+                List<String> argTypes = new ArrayList<>();
+                for (Parser.Node arg : node.children) {
+                    argTypes.add(arg.type); // Assuming each child represents the argument type
+                }
+                String funcName = node.children.get(0).type; // Function name
+                typeChecker.checkFunctionCall(funcName, argTypes);
+                break;
+            default:
+                for (Parser.Node child : node.children) {
+                    checkTypes(child, typeChecker);
+                }
+                break;
         }
     }
 }
@@ -0,0 +1,18 @@
+// Receives trace events from the compiler phases. Phases hold a nullable listener and only
+// call it when one is installed, so an untraced compile neither allocates nor formats
+// anything for tracing.
+public interface CompilerTraceListener {
+    // The parser looked at the current token
+    void tokenPeeked(TokenType type, String text);
+
+    // The parser consumed the current token
+    void tokenMatched(TokenType type, String text);
+
+    // The parser started or finished a grammar rule such as "GlobalVars" or "Instruction"
+    void ruleEntered(String rule);
+
+    void ruleExited(String rule);
+
+    // A later phase such as "scope" reached a syntax tree node
+    void nodeVisited(String phase, Parser.Node node);
+}
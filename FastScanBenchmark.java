@@ -0,0 +1,78 @@
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+// Compares scalar scanning with the word-at-a-time fast path (Lexer.setFastScan) on a
+// whitespace-heavy and an identifier-heavy source, both lexed from a mapped file.
+// Run with: java FastScanBenchmark [statements]
+public class FastScanBenchmark {
+
+    public static void main(String[] args) throws IOException {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        run("whitespace-heavy", whitespaceHeavy(statements));
+        run("identifier-heavy", identifierHeavy(statements));
+    }
+
+    private static void run(String name, String code) throws IOException {
+        Path file = Files.createTempFile("recspl", ".txt");
+        try {
+            Files.writeString(file, code);
+            CharSequence source = AsciiSource.map(file);
+
+            TokenBuffer scalar = lexer(source, false).tokenize();
+            TokenBuffer fast = lexer(source, true).tokenize();
+            if (scalar.size() != fast.size()) {
+                throw new RuntimeException("Token count mismatch on " + name);
+            }
+            for (int i = 0; i < scalar.size(); i++) {
+                if (scalar.type(i) != fast.type(i) || scalar.start(i) != fast.start(i) || scalar.length(i) != fast.length(i)) {
+                    throw new RuntimeException("Token mismatch on " + name + " at index " + i);
+                }
+            }
+
+            for (int round = 1; round <= 5; round++) {
+                long scalarNanos = time(source, false);
+                long fastNanos = time(source, true);
+                System.out.printf("%s round %d: scalar %.1f ms, fast scan %.1f ms (%.2fx)%n", name, round,
+                        scalarNanos / 1e6, fastNanos / 1e6, (double) scalarNanos / fastNanos);
+            }
+        } finally {
+            Files.deleteIfExists(file);
+        }
+    }
+
+    private static Lexer lexer(CharSequence source, boolean fastScan) {
+        Lexer lexer = new Lexer(source);
+        lexer.setFastScan(fastScan);
+        return lexer;
+    }
+
+    private static long time(CharSequence source, boolean fastScan) {
+        long start = System.nanoTime();
+        Lexer lexer = lexer(source, fastScan);
+        while (lexer.nextKind() != TokenType.EOF) {
+            // Scan only
+        }
+        return System.nanoTime() - start;
+    }
+
+    // Deeply indented statements separated by blank lines
+    private static String whitespaceHeavy(int statements) {
+        StringBuilder code = new StringBuilder("main\n{\n");
+        String indent = " ".repeat(48);
+        for (int i = 0; i < statements; i++) {
+            code.append(indent).append("V_a   =   input ;\n\n\t\t\n");
+        }
+        return code.append("}\n").toString();
+    }
+
+    // Long generated variable and function names
+    private static String identifierHeavy(int statements) {
+        StringBuilder code = new StringBuilder("main\n{\n");
+        for (int i = 0; i < statements; i++) {
+            code.append("V_generatedtemporaryvalue").append(i).append(" = F_generatedhelperfunction")
+                    .append(i % 100).append("(V_firstargumentvalue, V_secondargumentvalue, V_thirdargument);\n");
+        }
+        return code.append("}\n").toString();
+    }
+}
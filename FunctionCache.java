@@ -0,0 +1,157 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// FunctionDeclaration subtrees from earlier parses, keyed by a 64-bit hash of each
+// function's tokens from its return type to its closing brace. A Parser given the cache
+// reuses the subtree of every function whose tokens are unchanged and only parses the
+// others. Hashes cover token kinds and texts but not offsets, so edits elsewhere in the
+// file that move a function do not invalidate it. Each entry also keeps its own copy of
+// those kinds and texts, and a hit is only reused once they compare equal, so a hash
+// collision costs a reparse rather than a wrong subtree.
+//
+// Entries hold nothing of the token buffer they were parsed from: lazily parsed bodies are
+// parsed before they are stored, and then drop their buffer. A cache therefore does not
+// keep earlier versions of the source alive.
+//
+// Reused subtrees keep the symbol IDs they were parsed with, so every parse that shares a
+// cache must intern names with the cache's interner.
+public class FunctionCache {
+    private final Interner interner;
+    private Map<Long, Entry> previous = new HashMap<>();
+    private Map<Long, Entry> current = new HashMap<>();
+    private final List<String> rebuilt = new ArrayList<>();
+    private final List<String> reused = new ArrayList<>();
+
+    public FunctionCache(Interner interner) {
+        this.interner = interner;
+    }
+
+    public Interner interner() {
+        return interner;
+    }
+
+    // Called by the parser as it starts. Functions not seen in the previous parse are
+    // dropped, so the cache only holds functions of the last version of the file.
+    void begin() {
+        previous = current;
+        current = new HashMap<>();
+        rebuilt.clear();
+        reused.clear();
+    }
+
+    // The cached subtree of the function with tokens [from, to], or null
+    Parser.Node lookup(long hash, TokenBuffer tokens, int from, int to) {
+        Entry entry = current.get(hash);
+        if (entry == null || !entry.matches(tokens, from, to)) {
+            entry = previous.get(hash);
+            if (entry == null || !entry.matches(tokens, from, to)) {
+                return null;
+            }
+        }
+        current.put(hash, entry);
+        reused.add(entry.function.children.get(0).value);
+        return entry.function;
+    }
+
+    void store(long hash, TokenBuffer tokens, int from, int to, Parser.Node function) {
+        rebuilt.add(function.children.get(0).value);
+        try {
+            function.children.get(3); // Parses a lazy body, which then lets go of the buffer
+        } catch (RuntimeException e) {
+            return; // Left uncached, so reading the body reports the error as usual
+        }
+        current.put(hash, new Entry(function, tokens, from, to));
+    }
+
+    // Names of the functions parsed by the last parse, in source order
+    public List<String> rebuilt() {
+        return Collections.unmodifiableList(rebuilt);
+    }
+
+    // Names of the functions whose subtrees the last parse took from the cache
+    public List<String> reused() {
+        return Collections.unmodifiableList(reused);
+    }
+
+    // A cached subtree with the token kinds and texts it was parsed from
+    private static final class Entry {
+        final Parser.Node function;
+        private final byte[] kinds; // TokenType ordinals
+        private final String texts; // Texts of the tokens without a fixed spelling, back to back
+        private final int[] lengths; // Length of each of those texts
+
+        Entry(Parser.Node function, TokenBuffer tokens, int from, int to) {
+            this.function = function;
+            kinds = new byte[to - from + 1];
+            StringBuilder text = new StringBuilder();
+            int[] textLengths = new int[kinds.length];
+            int count = 0;
+            CharSequence source = tokens.source();
+            for (int i = from; i <= to; i++) {
+                TokenType type = tokens.type(i);
+                kinds[i - from] = (byte) type.ordinal();
+                if (Lexer.fixedSpelling(type) == null) {
+                    text.append(source, tokens.start(i), tokens.start(i) + tokens.length(i));
+                    textLengths[count++] = tokens.length(i);
+                }
+            }
+            texts = text.toString();
+            lengths = Arrays.copyOf(textLengths, count);
+        }
+
+        boolean matches(TokenBuffer tokens, int from, int to) {
+            if (to - from + 1 != kinds.length) {
+                return false;
+            }
+            CharSequence source = tokens.source();
+            int text = 0;
+            int offset = 0;
+            for (int i = from; i <= to; i++) {
+                TokenType type = tokens.type(i);
+                if (type.ordinal() != kinds[i - from]) {
+                    return false;
+                }
+                if (Lexer.fixedSpelling(type) != null) {
+                    continue;
+                }
+                int length = tokens.length(i);
+                if (length != lengths[text++]) {
+                    return false;
+                }
+                int start = tokens.start(i);
+                for (int c = 0; c < length; c++) {
+                    if (source.charAt(start + c) != texts.charAt(offset + c)) {
+                        return false;
+                    }
+                }
+                offset += length;
+            }
+            return true;
+        }
+    }
+
+    // FNV-1a over the kind and text of tokens [from, to]. The text of kinds with a fixed
+    // spelling is implied by the kind, and is skipped.
+    static long hash(TokenBuffer tokens, int from, int to) {
+        CharSequence source = tokens.source();
+        long hash = 0xcbf29ce484222325L;
+        for (int i = from; i <= to; i++) {
+            TokenType type = tokens.type(i);
+            hash = (hash ^ type.ordinal()) * 0x100000001b3L;
+            if (Lexer.fixedSpelling(type) != null) {
+                continue;
+            }
+            int start = tokens.start(i);
+            int end = start + tokens.length(i);
+            for (int c = start; c < end; c++) {
+                hash = (hash ^ source.charAt(c)) * 0x100000001b3L;
+            }
+            hash = (hash ^ 0xFFFF) * 0x100000001b3L; // Token separator, not a char value
+        }
+        return hash;
+    }
+}
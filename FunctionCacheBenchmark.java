@@ -0,0 +1,71 @@
+// Recompiling a large library after editing one function: a full parse against a relex
+// of the edit plus a parse that reuses the cached subtrees of unchanged functions.
+// Run with: java FunctionCacheBenchmark [functions] [statements per function]
+public class FunctionCacheBenchmark {
+    private static final int ROUNDS = 20; // The cached path needs a few rounds to warm up
+
+    public static void main(String[] args) {
+        int functions = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int statements = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        String source = LazyBodyBenchmark.generateLibrary(functions, statements);
+        Interner interner = new Interner();
+        TokenBuffer tokens = new Lexer(source, interner).tokenize();
+        FunctionCache cache = new FunctionCache(interner);
+        parse(tokens, cache);
+        System.out.println("Initial parse built " + cache.rebuilt().size() + " functions");
+        checkCollision(tokens, cache);
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            // Add a statement after the local variables of one function, a different one each round
+            String locals = "text V_s;\n";
+            int offset = source.indexOf(locals, source.indexOf("num F_lib" + (round * 997 % functions) + "(")) + locals.length();
+            String inserted = "    print(V_x);\n";
+
+            long start = System.nanoTime();
+            String edited = source.substring(0, offset) + inserted + source.substring(offset);
+            Parser.Node full = new Parser(new Lexer(edited, new Interner()).tokenize()).parse();
+            long fullNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            tokens = IncrementalLexer.relex(tokens, offset, 0, inserted).tokens;
+            Parser.Node incremental = parse(tokens, cache);
+            long incrementalNanos = System.nanoTime() - start;
+            source = edited;
+
+            if (!full.toString().equals(incremental.toString())) {
+                throw new RuntimeException("Cached parse built a different tree");
+            }
+            System.out.printf("Round %d: full %.1f ms, incremental %.1f ms (%.1fx); rebuilt %s, reused %d%n", round,
+                    fullNanos / 1e6, incrementalNanos / 1e6, (double) fullNanos / incrementalNanos, cache.rebuilt(),
+                    cache.reused().size());
+        }
+    }
+
+    // Looks the second function's tokens up under the first function's hash, as if the two
+    // hashes collided. The cache must compare the tokens and miss.
+    private static void checkCollision(TokenBuffer tokens, FunctionCache cache) {
+        int first = -1;
+        int second = -1;
+        for (int i = 0; i + 1 < tokens.size() && second < 0; i++) {
+            if (tokens.type(i) == TokenType.TYPE && tokens.type(i + 1) == TokenType.FNAME) {
+                if (first < 0) {
+                    first = i;
+                } else {
+                    second = i;
+                }
+            }
+        }
+        int length = second - first; // Generated functions differ only in their texts
+        long hash = FunctionCache.hash(tokens, first, second - 1);
+        if (cache.lookup(hash, tokens, first, second - 1) == null
+                || cache.lookup(hash, tokens, second, second + length - 1) != null) {
+            throw new RuntimeException("Cache hit did not compare the function's tokens");
+        }
+    }
+
+    static Parser.Node parse(TokenBuffer tokens, FunctionCache cache) {
+        Parser parser = new Parser(tokens);
+        parser.setFunctionCache(cache);
+        return parser.parse();
+    }
+}
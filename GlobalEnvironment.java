@@ -0,0 +1,36 @@
+// Global variable types and function signatures of a program. Global variables are keyed
+// by the Resolver's GLOBAL slot and functions by interned symbol. It is built once before
+// any function is checked and never changes afterwards, so checks running on different
+// threads can all read it without locking. The arrays are handed over by SemanticAnalyzer
+// and not kept anywhere else.
+public final class GlobalEnvironment {
+    private final String[] globalTypes;   // Null when the tree did not keep the type
+    private final String[] returnTypes;   // Same
+    private final String[][] paramTypes;  // Non-null exactly for declared functions
+
+    GlobalEnvironment(String[] globalTypes, String[] returnTypes, String[][] paramTypes) {
+        this.globalTypes = globalTypes;
+        this.returnTypes = returnTypes;
+        this.paramTypes = paramTypes;
+    }
+
+    public String globalType(int slot) {
+        return slot >= 0 && slot < globalTypes.length ? globalTypes[slot] : null;
+    }
+
+    public boolean isFunction(int symbol) {
+        return symbol >= 0 && symbol < paramTypes.length && paramTypes[symbol] != null;
+    }
+
+    public String returnType(int symbol) {
+        return isFunction(symbol) ? returnTypes[symbol] : null;
+    }
+
+    public int paramCount(int symbol) {
+        return paramTypes[symbol].length;
+    }
+
+    public String paramType(int symbol, int index) {
+        return paramTypes[symbol][index];
+    }
+}
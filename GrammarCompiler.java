@@ -0,0 +1,339 @@
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Build step for LL1Parser: reads a grammar file (see recspl.grammar for the notation),
+// computes FIRST and FOLLOW sets and writes the LL(1) parse table as Java source.
+// Run with: java GrammarCompiler recspl.grammar RecSplTables.java
+public class GrammarCompiler {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final Map<String, Integer> rules = new LinkedHashMap<>();
+    private final List<String> ruleNames = new ArrayList<>();
+    private final List<Integer> productionRules = new ArrayList<>(); // Rule each production belongs to
+    private final List<int[]> productions = new ArrayList<>();
+    private final List<String> productionTexts = new ArrayList<>();
+
+    public static void main(String[] args) throws IOException {
+        if (args.length != 2) {
+            System.err.println("Usage: java GrammarCompiler <grammar-file> <output.java>");
+            System.exit(1);
+        }
+        String grammar = new String(Files.readAllBytes(Paths.get(args[0])), StandardCharsets.UTF_8);
+        GrammarCompiler compiler = new GrammarCompiler();
+        compiler.read(grammar);
+        String className = Paths.get(args[1]).getFileName().toString().replace(".java", "");
+        try (PrintWriter out = new PrintWriter(Files.newBufferedWriter(Paths.get(args[1]), StandardCharsets.UTF_8))) {
+            compiler.write(out, className, Paths.get(args[0]).getFileName().toString());
+        }
+        System.out.println("Wrote " + args[1] + ": " + compiler.ruleNames.size() + " rules, "
+                + compiler.productions.size() + " productions");
+    }
+
+    // Parses "name : alternative | alternative ;" rules, with # comments
+    private void read(String grammar) {
+        List<String> words = new ArrayList<>();
+        for (String line : grammar.split("\r?\n")) {
+            int comment = line.indexOf('#');
+            if (comment >= 0) {
+                line = line.substring(0, comment);
+            }
+            for (String word : line.trim().split("\\s+")) {
+                if (!word.isEmpty()) {
+                    words.add(word);
+                }
+            }
+        }
+
+        // Rule names first, so rules can refer to ones defined further down
+        for (int i = 0; i + 1 < words.size(); i++) {
+            if (words.get(i + 1).equals(":") && (i == 0 || words.get(i - 1).equals(";"))) {
+                if (rules.containsKey(words.get(i))) {
+                    throw new RuntimeException("Rule '" + words.get(i) + "' is defined twice");
+                }
+                rules.put(words.get(i), ruleNames.size());
+                ruleNames.add(words.get(i));
+            }
+        }
+
+        int i = 0;
+        while (i < words.size()) {
+            String name = words.get(i);
+            if (i + 1 >= words.size() || !words.get(i + 1).equals(":")) {
+                throw new RuntimeException("Expected 'name :' but found '" + name + "'");
+            }
+            i += 2;
+            List<Integer> symbols = new ArrayList<>();
+            StringBuilder text = new StringBuilder(name).append(" :");
+            while (true) {
+                if (i >= words.size()) {
+                    throw new RuntimeException("Rule '" + name + "' is missing its ';'");
+                }
+                String word = words.get(i++);
+                if (word.equals("|") || word.equals(";")) {
+                    addProduction(rules.get(name), symbols, text.toString());
+                    symbols = new ArrayList<>();
+                    text = new StringBuilder(name).append(" :");
+                    if (word.equals(";")) {
+                        break;
+                    }
+                } else {
+                    symbols.add(symbol(word));
+                    text.append(' ').append(word);
+                }
+            }
+        }
+    }
+
+    private void addProduction(int rule, List<Integer> symbols, String text) {
+        int[] production = new int[symbols.size()];
+        for (int i = 0; i < production.length; i++) {
+            production[i] = symbols.get(i);
+        }
+        productionRules.add(rule);
+        productions.add(production);
+        productionTexts.add(text);
+    }
+
+    private int symbol(String word) {
+        if (word.equals("<")) {
+            return action(LL1Parser.MARK, 0, NodeKind.NONE);
+        }
+        if (word.equals("~")) {
+            return action(LL1Parser.NULL, 0, NodeKind.NONE);
+        }
+        if (word.startsWith("@")) {
+            int slash = word.indexOf('/');
+            if (slash < 0) {
+                return action(LL1Parser.BUILD, 0, NodeKind.of(word.substring(1)));
+            }
+            int count = Integer.parseInt(word.substring(slash + 1));
+            return action(LL1Parser.BUILD, count + 1, NodeKind.of(word.substring(1, slash)));
+        }
+        if (word.equals("^")) {
+            return action(LL1Parser.TYPED, 0, NodeKind.NONE);
+        }
+        if (word.startsWith("=")) {
+            return action(LL1Parser.KEEP, terminal(word.substring(1)), NodeKind.NONE);
+        }
+        if (word.startsWith("+")) {
+            return action(LL1Parser.EMPTY, 0, NodeKind.of(word.substring(1)));
+        }
+        int colon = word.indexOf(':');
+        if (colon > 0) {
+            return action(LL1Parser.CAPTURE, terminal(word.substring(colon + 1)), NodeKind.of(word.substring(0, colon)));
+        }
+        if (Character.isUpperCase(word.charAt(0))) {
+            return terminal(word);
+        }
+        Integer rule = rules.get(word);
+        if (rule == null) {
+            throw new RuntimeException("Undefined rule '" + word + "'");
+        }
+        return LL1Parser.NONTERMINAL + rule;
+    }
+
+    private static int terminal(String name) {
+        try {
+            return TokenType.valueOf(name).ordinal();
+        } catch (IllegalArgumentException e) {
+            throw new RuntimeException("Unknown token type '" + name + "'");
+        }
+    }
+
+    private static int action(int op, int operand, NodeKind kind) {
+        return LL1Parser.ACTION | op << LL1Parser.OP_SHIFT | operand << LL1Parser.OPERAND_SHIFT | kind.ordinal();
+    }
+
+    // Token a grammar symbol matches, -1 for a rule and -2 for an action
+    private static int matchedToken(int symbol) {
+        if (symbol < LL1Parser.NONTERMINAL) {
+            return symbol;
+        }
+        if (symbol < LL1Parser.ACTION) {
+            return -1;
+        }
+        int op = symbol >>> LL1Parser.OP_SHIFT & 0xF;
+        if (op == LL1Parser.CAPTURE || op == LL1Parser.KEEP) {
+            return symbol >>> LL1Parser.OPERAND_SHIFT & LL1Parser.OPERAND_MASK;
+        }
+        return -2;
+    }
+
+    // Adds FIRST of symbols[from..] to the set and returns whether they can all be empty
+    private boolean first(int[] symbols, int from, BitSet[] firsts, boolean[] nullable, BitSet into) {
+        for (int i = from; i < symbols.length; i++) {
+            int token = matchedToken(symbols[i]);
+            if (token >= 0) {
+                into.set(token);
+                return false;
+            }
+            if (token == -1) {
+                int rule = symbols[i] - LL1Parser.NONTERMINAL;
+                into.or(firsts[rule]);
+                if (!nullable[rule]) {
+                    return false;
+                }
+            }
+        }
+        return true;
+    }
+
+    private short[] buildTable() {
+        int ruleCount = ruleNames.size();
+        BitSet[] firsts = new BitSet[ruleCount];
+        BitSet[] follows = new BitSet[ruleCount];
+        for (int r = 0; r < ruleCount; r++) {
+            firsts[r] = new BitSet();
+            follows[r] = new BitSet();
+        }
+        boolean[] nullable = new boolean[ruleCount];
+        follows[0].set(TokenType.EOF.ordinal());
+
+        // Iterate to a fixed point, first for FIRST and nullable, then for FOLLOW
+        for (boolean changed = true; changed; ) {
+            changed = false;
+            for (int p = 0; p < productions.size(); p++) {
+                int rule = productionRules.get(p);
+                BitSet first = new BitSet();
+                boolean empty = first(productions.get(p), 0, firsts, nullable, first);
+                first.andNot(firsts[rule]);
+                if (!first.isEmpty() || (empty && !nullable[rule])) {
+                    firsts[rule].or(first);
+                    nullable[rule] |= empty;
+                    changed = true;
+                }
+            }
+        }
+        for (boolean changed = true; changed; ) {
+            changed = false;
+            for (int p = 0; p < productions.size(); p++) {
+                int[] symbols = productions.get(p);
+                for (int i = 0; i < symbols.length; i++) {
+                    if (matchedToken(symbols[i]) != -1) {
+                        continue;
+                    }
+                    int rule = symbols[i] - LL1Parser.NONTERMINAL;
+                    BitSet follow = new BitSet();
+                    if (first(symbols, i + 1, firsts, nullable, follow)) {
+                        follow.or(follows[productionRules.get(p)]);
+                    }
+                    follow.andNot(follows[rule]);
+                    if (!follow.isEmpty()) {
+                        follows[rule].or(follow);
+                        changed = true;
+                    }
+                }
+            }
+        }
+
+        // Alternatives claim the tokens they start with; an empty alternative then takes the
+        // rule's FOLLOW tokens that are still free
+        int tokenCount = TYPES.length;
+        short[] table = new short[ruleCount * tokenCount];
+        Arrays.fill(table, (short) -1);
+        List<Integer> emptyProductions = new ArrayList<>();
+        for (int p = 0; p < productions.size(); p++) {
+            int rule = productionRules.get(p);
+            BitSet first = new BitSet();
+            if (first(productions.get(p), 0, firsts, nullable, first)) {
+                emptyProductions.add(p);
+            }
+            for (int t = first.nextSetBit(0); t >= 0; t = first.nextSetBit(t + 1)) {
+                claim(table, rule * tokenCount + t, p);
+            }
+        }
+        Map<Integer, Integer> emptyByRule = new HashMap<>();
+        for (int p : emptyProductions) {
+            int rule = productionRules.get(p);
+            Integer other = emptyByRule.put(rule, p);
+            if (other != null) {
+                throw new RuntimeException("LL(1) conflict: '" + productionTexts.get(other) + "' and '"
+                        + productionTexts.get(p) + "' can both be empty");
+            }
+            BitSet follow = follows[rule];
+            for (int t = follow.nextSetBit(0); t >= 0; t = follow.nextSetBit(t + 1)) {
+                if (table[rule * tokenCount + t] < 0) {
+                    table[rule * tokenCount + t] = (short) p;
+                }
+            }
+        }
+        return table;
+    }
+
+    private void claim(short[] table, int cell, int production) {
+        if (table[cell] >= 0 && table[cell] != production) {
+            throw new RuntimeException("LL(1) conflict on " + TYPES[cell % TYPES.length] + ": '"
+                    + productionTexts.get(table[cell]) + "' and '" + productionTexts.get(production) + "'");
+        }
+        table[cell] = (short) production;
+    }
+
+    private void write(PrintWriter out, String className, String grammarName) {
+        short[] table = buildTable();
+        out.println("// Generated by GrammarCompiler from " + grammarName + ". Do not edit; regenerate with:");
+        out.println("//   java GrammarCompiler " + grammarName + " " + className + ".java");
+        out.println("public class " + className + " {");
+        out.println("    static final int TOKEN_TYPES = " + TYPES.length + ";");
+        out.println("    static final int START = 0;");
+        out.println();
+        out.println("    static final String[] RULES = {");
+        for (String name : ruleNames) {
+            out.println("        \"" + name + "\",");
+        }
+        out.println("    };");
+        out.println();
+        out.println("    // Symbols of production p are PRODUCTIONS[PRODUCTION_STARTS[p] .. PRODUCTION_STARTS[p + 1])");
+        out.println("    static final int[] PRODUCTION_STARTS = {");
+        int start = 0;
+        StringBuilder line = new StringBuilder("        0,");
+        for (int[] production : productions) {
+            start += production.length;
+            line.append(' ').append(start).append(',');
+            if (line.length() > 100) {
+                out.println(line);
+                line = new StringBuilder("       ");
+            }
+        }
+        if (line.toString().trim().length() > 0) {
+            out.println(line);
+        }
+        out.println("    };");
+        out.println();
+        out.println("    static final int[] PRODUCTIONS = {");
+        for (int p = 0; p < productions.size(); p++) {
+            out.println("        // " + p + ": " + productionTexts.get(p));
+            if (productions.get(p).length == 0) {
+                continue;
+            }
+            line = new StringBuilder("       ");
+            for (int symbol : productions.get(p)) {
+                line.append(' ').append(symbol < LL1Parser.ACTION ? Integer.toString(symbol) : String.format("0x%08x", symbol)).append(',');
+            }
+            out.println(line);
+        }
+        out.println("    };");
+        out.println();
+        out.println("    // Production for rule r on token type t is TABLE[r * TOKEN_TYPES + t], or -1");
+        out.println("    static final short[] TABLE = {");
+        for (int r = 0; r < ruleNames.size(); r++) {
+            out.println("        // " + ruleNames.get(r));
+            line = new StringBuilder("       ");
+            for (int t = 0; t < TYPES.length; t++) {
+                line.append(' ').append(table[r * TYPES.length + t]).append(',');
+            }
+            out.println(line);
+        }
+        out.println("    };");
+        out.println("}");
+    }
+}
@@ -0,0 +1,121 @@
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// Parse time and retained tree memory with and without a hash-consing NodeFactory, on
+// generated programs that repeat the same atomic sub-expressions.
+// Run with: java HashConsBenchmark [statements]
+public class HashConsBenchmark {
+    private static final int REPEATS = 10;
+    private static final int ROUNDS = 10; // Timings on a small heap are noisy, so take a few more
+    private static final int RETAINED_COPIES = 4;
+
+    public static void main(String[] args) {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        TokenBuffer tokens = new Lexer(InterchangeBenchmark.generateProgram(statements), new Interner()).tokenize();
+
+        NodeFactory factory = new NodeFactory();
+        if (!parse(tokens, null).toString().equals(parse(tokens, factory).toString())) {
+            throw new RuntimeException("Hash-consed parse built a different tree");
+        }
+        System.out.println("Trees match (" + tokens.size() + " tokens); " + factory.size() + " shared nodes stand in for "
+                + (factory.size() + factory.reused()));
+        checkAnalysis(LazyBodyBenchmark.generateLibrary(2_000, 10));
+        System.out.println("Hash-consed library resolves and analyzes like the plain one");
+
+        for (int round = 1; round <= ROUNDS; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < REPEATS; i++) {
+                parse(tokens, null);
+            }
+            long plainNanos = (System.nanoTime() - start) / REPEATS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < REPEATS; i++) {
+                parse(tokens, new NodeFactory());
+            }
+            long sharedNanos = (System.nanoTime() - start) / REPEATS;
+            System.out.printf("Round %d: plain %.1f ms, hash-consed %.1f ms%n", round, plainNanos / 1e6, sharedNanos / 1e6);
+        }
+        printRetained(tokens);
+    }
+
+    // The Resolver and SemanticAnalyzer must give a hash-consed tree, whose VName leaves and
+    // calls are shared between functions, the same results as the plain tree
+    static void checkAnalysis(String source) {
+        Interner interner = new Interner();
+        TokenBuffer tokens = new Lexer(source, interner).tokenize();
+        Parser.Node plain = parse(tokens, null);
+        Parser.Node shared = parse(tokens, new NodeFactory());
+
+        Resolver plainResolver = new Resolver(interner);
+        plainResolver.resolve(plain);
+        Resolver sharedResolver = new Resolver(interner);
+        sharedResolver.resolve(shared);
+        if (!plainResolver.diagnostics().equals(sharedResolver.diagnostics())) {
+            throw new RuntimeException("Hash-consed tree resolved with different diagnostics");
+        }
+        List<Parser.Node> plainUnits = units(plain);
+        List<Parser.Node> sharedUnits = units(shared);
+        for (int i = 0; i < plainUnits.size(); i++) {
+            checkBindings(plainResolver.scope(plainUnits.get(i)), plainUnits.get(i),
+                    sharedResolver.scope(sharedUnits.get(i)), sharedUnits.get(i));
+        }
+
+        List<String> plainDiagnostics = new SemanticAnalyzer(interner).analyze(plain, ForkJoinPool.commonPool());
+        if (!plainDiagnostics.equals(new SemanticAnalyzer(interner).analyze(shared, ForkJoinPool.commonPool()))) {
+            throw new RuntimeException("Hash-consed tree analyzed with different diagnostics");
+        }
+    }
+
+    // The main algorithm and the function declarations
+    private static List<Parser.Node> units(Parser.Node program) {
+        List<Parser.Node> units = new ArrayList<>();
+        units.add(program.children.get(1));
+        units.addAll(program.children.get(2).children);
+        return units;
+    }
+
+    private static void checkBindings(Resolver.Scope plainScope, Parser.Node plain, Resolver.Scope sharedScope,
+            Parser.Node shared) {
+        if (plain == null) {
+            return;
+        }
+        if (plain.kind == NodeKind.VNAME || plain.kind == NodeKind.VAR_NAME || plain.kind == NodeKind.PARAM_NAME) {
+            if (plainScope.depth(plain) != sharedScope.depth(shared) || plainScope.slot(plain) != sharedScope.slot(shared)) {
+                throw new RuntimeException("Hash-consed tree bound " + plain.value + " differently");
+            }
+        }
+        for (int i = 0; i < plain.children.size(); i++) {
+            checkBindings(plainScope, plain.children.get(i), sharedScope, shared.children.get(i));
+        }
+    }
+
+    static Parser.Node parse(TokenBuffer tokens, NodeFactory factory) {
+        Parser parser = new Parser(tokens);
+        parser.setNodeFactory(factory);
+        return parser.parse();
+    }
+
+    // Heap held per tree, averaged over several copies of each kind that stay reachable until
+    // both have been measured. The factories' own tables are dropped before measuring, as
+    // they are not needed once parsing is done.
+    static void printRetained(TokenBuffer tokens) {
+        Parser.Node[] plain = new Parser.Node[RETAINED_COPIES];
+        Parser.Node[] shared = new Parser.Node[RETAINED_COPIES];
+        long before = LazyBodyBenchmark.usedHeap();
+        for (int i = 0; i < RETAINED_COPIES; i++) {
+            plain[i] = parse(tokens, null);
+        }
+        long afterPlain = LazyBodyBenchmark.usedHeap();
+        for (int i = 0; i < RETAINED_COPIES; i++) {
+            shared[i] = parse(tokens, new NodeFactory());
+        }
+        long afterShared = LazyBodyBenchmark.usedHeap();
+        Reference.reachabilityFence(plain);
+        Reference.reachabilityFence(shared);
+        System.out.printf("Retained tree: plain %d KB, hash-consed %d KB%n", (afterPlain - before) / RETAINED_COPIES / 1024,
+                (afterShared - afterPlain) / RETAINED_COPIES / 1024);
+    }
+}
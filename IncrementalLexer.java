@@ -0,0 +1,82 @@
+// Relexes only the part of a token stream touched by a text edit. Lexing restarts at the
+// token before the first token the edit touches, since that is the furthest back an edit
+// can change a token boundary, or at the edit itself if that comes first. It stops as soon
+// as a new token lines up with an old token of the same kind and length past the edit.
+// The first touched token is found by binary search, so finding the window costs only the
+// size of the edit. Tokens outside the window are block-copied with their offsets shifted.
+public class IncrementalLexer {
+
+    // The relexed stream and the token range that changed: tokens [firstToken,
+    // firstToken + removedTokens) of the old stream were replaced by tokens [firstToken,
+    // firstToken + insertedTokens) of the new one
+    public static class Result {
+        public final TokenBuffer tokens;
+        public final int firstToken;
+        public final int removedTokens;
+        public final int insertedTokens;
+
+        Result(TokenBuffer tokens, int firstToken, int removedTokens, int insertedTokens) {
+            this.tokens = tokens;
+            this.firstToken = firstToken;
+            this.removedTokens = removedTokens;
+            this.insertedTokens = insertedTokens;
+        }
+    }
+
+    // Applies the edit (replace removed chars at offset with inserted) to the source of the
+    // old stream and relexes the affected region
+    public static Result relex(TokenBuffer old, int offset, int removed, String inserted) {
+        CharSequence oldSource = old.source();
+        StringBuilder source = new StringBuilder(oldSource.length() - removed + inserted.length());
+        source.append(oldSource, 0, offset).append(inserted).append(oldSource, offset + removed, oldSource.length());
+
+        int shift = inserted.length() - removed;
+        int editEnd = offset + inserted.length(); // End of the edit in the new source
+
+        // First token that ends at or after the edit, then one more back: a token ending right
+        // at the edit can merge with inserted text ("-" followed by "5" becomes "-5"). Tokens
+        // do not overlap, so their ends are sorted like their starts.
+        int low = 0;
+        int high = old.size();
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (old.start(mid) + old.length(mid) < offset) {
+                low = mid + 1;
+            } else {
+                high = mid;
+            }
+        }
+        int first = Math.max(0, low - 1);
+        // An edit in leading whitespace comes before the first token, and with no old tokens at
+        // all there is nothing to restart from but the edit
+        int restart = first == old.size() ? offset : Math.min(old.start(first), offset);
+
+        Lexer lexer = new Lexer(source, restart, source.length(), old.interner());
+        TokenBuffer relexed = new TokenBuffer(source, old.interner(), 16);
+        int resume = first; // Old token that the new stream lines up with again
+        TokenType type;
+        while ((type = lexer.nextKind()) != TokenType.EOF) {
+            int start = lexer.tokenStart();
+            if (start >= editEnd) {
+                int oldStart = start - shift;
+                while (resume < old.size() && old.start(resume) < oldStart) {
+                    resume++;
+                }
+                if (resume < old.size() && old.start(resume) == oldStart && old.type(resume) == type
+                        && old.length(resume) == lexer.tokenLength()) {
+                    break;
+                }
+            }
+            relexed.add(type, start, lexer.tokenLength(), lexer.tokenSymbol());
+        }
+        if (type == TokenType.EOF) {
+            resume = old.size();
+        }
+
+        TokenBuffer tokens = new TokenBuffer(source, old.interner(), old.size() + relexed.size());
+        tokens.append(old, 0, first, 0);
+        tokens.append(relexed);
+        tokens.append(old, resume, old.size(), shift);
+        return new Result(tokens, first, resume - first, relexed.size());
+    }
+}
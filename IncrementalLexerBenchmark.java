@@ -0,0 +1,90 @@
+// Relexing after a small edit with IncrementalLexer against lexing the edited source again.
+// Before timing, edits at offset 0, between every pair of tokens and after the last token
+// of a small program are checked to give the same stream as a full lex.
+// Run with: java IncrementalLexerBenchmark [statements]
+public class IncrementalLexerBenchmark {
+    private static final int ROUNDS = 20;
+
+    public static void main(String[] args) {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+
+        checkEdit("   main { }", 0, 0, "skip ");
+        checkEdit("", 0, 0, "main { }");
+        checkEdit("   ", 1, 1, "main");
+        String small = "  " + LexerBenchmark.generateSource(20);
+        TokenBuffer tokens = new Lexer(small, new Interner()).tokenize();
+        String[] edits = {" ", "V_q", "-", "5", "skip;", "\"t"};
+        int checked = 0;
+        for (String inserted : edits) {
+            checkEdit(small, 0, 0, inserted);
+            checkEdit(small, 0, 2, inserted);
+            checkEdit(small, small.length(), 0, inserted);
+            for (int i = 0; i < tokens.size(); i++) {
+                int end = tokens.start(i) + tokens.length(i);
+                checkEdit(small, end, 0, inserted);
+                checkEdit(small, tokens.start(i), tokens.length(i), inserted);
+                checked += 2;
+            }
+        }
+        System.out.println("Relexed streams match full lexes (" + checked + " edits)");
+
+        String source = LexerBenchmark.generateSource(statements);
+        Interner interner = new Interner();
+        tokens = new Lexer(source, interner).tokenize();
+        for (int round = 1; round <= ROUNDS; round++) {
+            int offset = source.indexOf(";\n", source.length() / ROUNDS * (round - 1) + 1) + 2;
+            String inserted = "  print(V_a);\n";
+
+            long start = System.nanoTime();
+            String edited = source.substring(0, offset) + inserted + source.substring(offset);
+            TokenBuffer full = new Lexer(edited, new Interner()).tokenize();
+            long fullNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            IncrementalLexer.Result result = IncrementalLexer.relex(tokens, offset, 0, inserted);
+            long incrementalNanos = System.nanoTime() - start;
+            check(full, result.tokens);
+            tokens = result.tokens;
+            source = edited;
+            System.out.printf("Round %d: full %.2f ms, incremental %.3f ms; %d tokens relexed%n", round,
+                    fullNanos / 1e6, incrementalNanos / 1e6, result.insertedTokens);
+        }
+    }
+
+    // Relexes the edit both ways. Sources the Lexer rejects must be rejected by both.
+    private static void checkEdit(String source, int offset, int removed, String inserted) {
+        String edited = source.substring(0, offset) + inserted + source.substring(offset + removed);
+        TokenBuffer expected;
+        try {
+            expected = new Lexer(edited, new Interner()).tokenize();
+        } catch (RuntimeException e) {
+            expected = null;
+        }
+        TokenBuffer actual;
+        try {
+            actual = IncrementalLexer.relex(new Lexer(source, new Interner()).tokenize(), offset, removed, inserted).tokens;
+        } catch (RuntimeException e) {
+            if (expected != null) {
+                throw new RuntimeException("Relex failed on edit at " + offset + ": " + e.getMessage());
+            }
+            return;
+        }
+        if (expected == null) {
+            throw new RuntimeException("Relex accepted an edit at " + offset + " that a full lex rejects");
+        }
+        check(expected, actual);
+    }
+
+    // Symbol IDs depend on interning order, so names are compared by text
+    private static void check(TokenBuffer expected, TokenBuffer actual) {
+        if (expected.size() != actual.size()) {
+            throw new RuntimeException("Token count mismatch: " + expected.size() + " vs " + actual.size());
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            if (expected.type(i) != actual.type(i) || expected.start(i) != actual.start(i)
+                    || expected.length(i) != actual.length(i) || !expected.text(i).equals(actual.text(i))) {
+                throw new RuntimeException("Token mismatch at index " + i);
+            }
+        }
+    }
+}
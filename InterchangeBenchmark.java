@@ -0,0 +1,146 @@
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import javax.xml.parsers.DocumentBuilderFactory;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+// Round-trip cost of handing tokens and the syntax tree between stages: XML written by
+// TokenStreamXml/SyntaxTreeXml and read back through a DOM, against BinaryFormat.
+// Run with: java InterchangeBenchmark [statements]
+public class InterchangeBenchmark {
+
+    public static void main(String[] args) throws Exception {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        String source = generateProgram(statements);
+        TokenBuffer tokens = new Lexer(source).tokenize();
+
+        PrintStream console = System.out;
+        System.setOut(new PrintStream(PrintStream.nullOutputStream())); // Silence parser tracing
+        Parser.Node ast = new Parser(tokens).parse();
+        System.setOut(console);
+
+        checkTokens(tokens, BinaryFormat.readTokens(new ByteArrayInputStream(binaryTokens(tokens)), null));
+        // Compared through the binary encoding, which unlike toString() covers declared types
+        ParserBenchmark.checkSameTree(ast, BinaryFormat.readTree(new ByteArrayInputStream(binaryTree(ast)), null));
+        System.out.printf("%d tokens: XML %d bytes, binary %d bytes%n", tokens.size(), xmlTokens(tokens).length,
+                binaryTokens(tokens).length);
+        System.out.printf("Tree: XML %d bytes, binary %d bytes%n", xmlTree(ast).length, binaryTree(ast).length);
+
+        for (int round = 1; round <= 5; round++) {
+            long start = System.nanoTime();
+            readXmlTokens(xmlTokens(tokens));
+            long xmlTokenNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            BinaryFormat.readTokens(new ByteArrayInputStream(binaryTokens(tokens)), null);
+            long binaryTokenNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            readXmlTree(xmlTree(ast));
+            long xmlTreeNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            BinaryFormat.readTree(new ByteArrayInputStream(binaryTree(ast)), null);
+            long binaryTreeNanos = System.nanoTime() - start;
+
+            System.out.printf("Round %d: tokens XML %.1f ms, binary %.1f ms; tree XML %.1f ms, binary %.1f ms%n", round,
+                    xmlTokenNanos / 1e6, binaryTokenNanos / 1e6, xmlTreeNanos / 1e6, binaryTreeNanos / 1e6);
+        }
+    }
+
+    // Straight-line statements the parser accepts, with nested calls
+    static String generateProgram(int statements) {
+        StringBuilder code = new StringBuilder("main\n{\n  num V_a, num V_b, text V_msg;\n");
+        for (int i = 0; i < statements; i++) {
+            switch (i % 4) {
+                case 0:
+                    code.append("  V_a = input;\n");
+                    break;
+                case 1:
+                    code.append("  V_b = F_logic").append(i % 13).append("(V_a, -").append(i).append(".5, F_inner(V_b, 1, \"x\"));\n");
+                    break;
+                case 2:
+                    code.append("  V_msg = \"hello\";\n");
+                    break;
+                default:
+                    code.append("  print(V_a").append(i % 31).append(");\n");
+                    break;
+            }
+        }
+        return code.append("}\n").toString();
+    }
+
+    private static void checkTokens(TokenBuffer expected, TokenBuffer actual) {
+        if (expected.size() != actual.size()) {
+            throw new RuntimeException("Token count mismatch");
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            if (expected.type(i) != actual.type(i) || !expected.text(i).equals(actual.text(i))) {
+                throw new RuntimeException("Token mismatch at index " + i);
+            }
+        }
+    }
+
+    private static byte[] binaryTokens(TokenBuffer tokens) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFormat.writeTokens(tokens, out);
+        return out.toByteArray();
+    }
+
+    private static byte[] binaryTree(Parser.Node ast) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        BinaryFormat.writeTree(ast, out);
+        return out.toByteArray();
+    }
+
+    private static byte[] xmlTokens(TokenBuffer tokens) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        TokenStreamXml.write(tokens.cursor(0), out);
+        return out.toByteArray();
+    }
+
+    private static byte[] xmlTree(Parser.Node ast) throws Exception {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        SyntaxTreeXml.write(ast, writer);
+        writer.flush();
+        return out.toByteArray();
+    }
+
+    private static List<Lexer.Token> readXmlTokens(byte[] xml) throws Exception {
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+        NodeList toks = doc.getElementsByTagName("TOK");
+        List<Lexer.Token> tokens = new ArrayList<>(toks.getLength());
+        for (int i = 0; i < toks.getLength(); i++) {
+            Element tok = (Element) toks.item(i);
+            tokens.add(new Lexer.Token(TokenType.valueOf(tok.getElementsByTagName("CLASS").item(0).getTextContent()),
+                    tok.getElementsByTagName("WORD").item(0).getTextContent()));
+        }
+        return tokens;
+    }
+
+    private static Parser.Node readXmlTree(byte[] xml) throws Exception {
+        Document doc = DocumentBuilderFactory.newInstance().newDocumentBuilder().parse(new ByteArrayInputStream(xml));
+        return toNode(doc.getDocumentElement());
+    }
+
+    private static Parser.Node toNode(Element element) {
+        List<Parser.Node> children = new ArrayList<>();
+        for (org.w3c.dom.Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element) {
+                children.add(toNode((Element) child));
+            }
+        }
+        if (children.isEmpty() && !element.getTextContent().isEmpty()) {
+            return new Parser.Node(element.getTagName(), element.getTextContent());
+        }
+        return new Parser.Node(element.getTagName(), children.toArray(new Parser.Node[0]));
+    }
+}
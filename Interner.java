@@ -0,0 +1,102 @@
+import java.util.Arrays;
+
+// Compile-wide identifier interner. Every distinct VNAME/FNAME gets a dense int ID the first
+// time the Lexer sees it, so later phases can key their tables by array index instead of
+// hashing the same strings again.
+public class Interner {
+    private String[] names = new String[256];
+    private int[] hashes = new int[256];
+    private int[] slots = new int[512]; // Open addressing, holds ID + 1 and 0 for empty
+    private int size;
+
+    // ID of the identifier spelled by the given slice, assigning the next free ID if new
+    public int intern(CharSequence text, int start, int length) {
+        int hash = hash(text, start, length);
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                return add(text.subSequence(start, start + length).toString(), hash, slot);
+            }
+            if (hashes[id] == hash && equals(names[id], text, start, length)) {
+                return id;
+            }
+        }
+    }
+
+    public int intern(String name) {
+        return intern(name, 0, name.length());
+    }
+
+    // ID of an identifier that has already been interned, or -1
+    public int lookup(String name) {
+        int hash = hash(name, 0, name.length());
+        int mask = slots.length - 1;
+        for (int slot = hash & mask; ; slot = (slot + 1) & mask) {
+            int id = slots[slot] - 1;
+            if (id < 0) {
+                return -1;
+            }
+            if (hashes[id] == hash && names[id].equals(name)) {
+                return id;
+            }
+        }
+    }
+
+    public String name(int id) {
+        return names[id];
+    }
+
+    // Number of IDs handed out so far; IDs run from 0 to size() - 1
+    public int size() {
+        return size;
+    }
+
+    private int add(String name, int hash, int slot) {
+        if (size == names.length) {
+            names = Arrays.copyOf(names, size * 2);
+            hashes = Arrays.copyOf(hashes, size * 2);
+        }
+        int id = size++;
+        names[id] = name;
+        hashes[id] = hash;
+        slots[slot] = id + 1;
+        if (size * 2 > slots.length) {
+            rehash();
+        }
+        return id;
+    }
+
+    // Keeps the load factor at most one half
+    private void rehash() {
+        slots = new int[slots.length * 2];
+        int mask = slots.length - 1;
+        for (int id = 0; id < size; id++) {
+            int slot = hashes[id] & mask;
+            while (slots[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            slots[slot] = id + 1;
+        }
+    }
+
+    private static int hash(CharSequence text, int start, int length) {
+        int hash = 0;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + text.charAt(start + i);
+        }
+        return hash ^ (hash >>> 16);
+    }
+
+    private static boolean equals(String name, CharSequence text, int start, int length) {
+        if (name.length() != length) {
+            return false;
+        }
+        for (int i = 0; i < length; i++) {
+            if (name.charAt(i) != text.charAt(start + i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,129 @@
+import java.io.BufferedWriter;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+
+// Writes trace events as JSON Lines through a large buffer, one object per event with a
+// sequence number, e.g. {"seq":3,"event":"match","type":"VNAME","text":"V_a"}
+public class JsonlTraceListener implements CompilerTraceListener, Closeable {
+    private final Writer writer;
+    private long sequence;
+
+    public JsonlTraceListener(String filename) throws IOException {
+        this(new BufferedWriter(new OutputStreamWriter(Files.newOutputStream(Paths.get(filename)), StandardCharsets.UTF_8), 1 << 16));
+    }
+
+    public JsonlTraceListener(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void tokenPeeked(TokenType type, String text) {
+        token("peek", type, text);
+    }
+
+    @Override
+    public void tokenMatched(TokenType type, String text) {
+        token("match", type, text);
+    }
+
+    @Override
+    public void ruleEntered(String rule) {
+        rule("enter", rule);
+    }
+
+    @Override
+    public void ruleExited(String rule) {
+        rule("exit", rule);
+    }
+
+    @Override
+    public void nodeVisited(String phase, Parser.Node node) {
+        try {
+            begin("node");
+            field("phase", phase);
+            field("type", node.type);
+            if (node.value != null) {
+                field("value", node.value);
+            }
+            end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void token(String event, TokenType type, String text) {
+        try {
+            begin(event);
+            field("type", type.name());
+            field("text", text);
+            end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void rule(String event, String rule) {
+        try {
+            begin(event);
+            field("rule", rule);
+            end();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void begin(String event) throws IOException {
+        writer.write("{\"seq\":");
+        writer.write(Long.toString(++sequence));
+        field("event", event);
+    }
+
+    private void field(String name, String value) throws IOException {
+        writer.write(",\"");
+        writer.write(name);
+        writer.write("\":\"");
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"':
+                    writer.write("\\\"");
+                    break;
+                case '\\':
+                    writer.write("\\\\");
+                    break;
+                case '\n':
+                    writer.write("\\n");
+                    break;
+                case '\r':
+                    writer.write("\\r");
+                    break;
+                case '\t':
+                    writer.write("\\t");
+                    break;
+                default:
+                    if (c < 0x20) {
+                        writer.write(String.format("\\u%04x", (int) c));
+                    } else {
+                        writer.write(c);
+                    }
+                    break;
+            }
+        }
+        writer.write('"');
+    }
+
+    private void end() throws IOException {
+        writer.write("}\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
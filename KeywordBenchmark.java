@@ -0,0 +1,86 @@
+import java.util.Random;
+
+// Microbenchmark for keyword classification: the perfect hash in Lexer.keywordType against
+// the substring + string switch the lexer used before. Run with: java KeywordBenchmark
+public class KeywordBenchmark {
+    private static final String[] WORDS = {
+            "if", "then", "else", "print", "halt", "begin", "end", "main", "num", "text", "function", "skip",
+            "not", "sqrt", "or", "and", "eq", "grt", "add", "sub", "mul", "div", "return", "input"
+    };
+
+    public static void main(String[] args) {
+        int lookups = args.length > 0 ? Integer.parseInt(args[0]) : 5_000_000;
+
+        // Lay random keywords out in one buffer, as they appear in a source file
+        Random random = new Random(42);
+        StringBuilder text = new StringBuilder();
+        int[] starts = new int[lookups];
+        int[] lengths = new int[lookups];
+        for (int i = 0; i < lookups; i++) {
+            String word = WORDS[random.nextInt(WORDS.length)];
+            starts[i] = text.length();
+            lengths[i] = word.length();
+            text.append(word).append(' ');
+        }
+        String source = text.toString();
+
+        for (int i = 0; i < lookups; i++) {
+            if (Lexer.keywordType(source, starts[i], lengths[i]) != classifyBySwitch(source, starts[i], lengths[i])) {
+                throw new RuntimeException("Classification mismatch at " + i);
+            }
+        }
+
+        for (int round = 1; round <= 5; round++) {
+            long start = System.nanoTime();
+            int hashHits = 0;
+            for (int i = 0; i < lookups; i++) {
+                hashHits += Lexer.keywordType(source, starts[i], lengths[i]).ordinal();
+            }
+            long hashNanos = System.nanoTime() - start;
+
+            start = System.nanoTime();
+            int switchHits = 0;
+            for (int i = 0; i < lookups; i++) {
+                switchHits += classifyBySwitch(source, starts[i], lengths[i]).ordinal();
+            }
+            long switchNanos = System.nanoTime() - start;
+
+            if (hashHits != switchHits) {
+                throw new RuntimeException("Checksum mismatch");
+            }
+            System.out.printf("Round %d: perfect hash %.1f ns/lookup, string switch %.1f ns/lookup (%.1fx)%n", round,
+                    (double) hashNanos / lookups, (double) switchNanos / lookups, (double) switchNanos / hashNanos);
+        }
+    }
+
+    // The classification the lexer did before: copy the token out and switch on it
+    private static TokenType classifyBySwitch(String source, int start, int length) {
+        switch (source.substring(start, start + length)) {
+            case "if": return TokenType.IF;
+            case "then": return TokenType.THEN;
+            case "else": return TokenType.ELSE;
+            case "print": return TokenType.PRINT;
+            case "halt": return TokenType.HALT;
+            case "begin": return TokenType.BEGIN;
+            case "end": return TokenType.END;
+            case "main": return TokenType.MAIN;
+            case "num":
+            case "text": return TokenType.TYPE;
+            case "skip": return TokenType.SKIP;
+            case "function": return TokenType.FUNCTION;
+            case "return": return TokenType.RETURN;
+            case "input": return TokenType.INPUT;
+            case "add": return TokenType.ADD;
+            case "sub": return TokenType.SUB;
+            case "mul": return TokenType.MUL;
+            case "div": return TokenType.DIV;
+            case "grt": return TokenType.GRT;
+            case "eq": return TokenType.EQ;
+            case "not":
+            case "sqrt": return TokenType.UNARY;
+            case "or":
+            case "and": return TokenType.BINARY;
+            default: return null;
+        }
+    }
+}
@@ -0,0 +1,35 @@
+import java.io.IOException;
+
+// Compares the table-driven LL1Parser against the hand-written Parser on large generated
+// programs, both reading the same pre-lexed TokenBuffer.
+// Run with: java LL1Benchmark [statements]
+public class LL1Benchmark {
+    private static final int REPEATS = 10;
+
+    public static void main(String[] args) throws IOException {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        TokenBuffer tokens = new Lexer(InterchangeBenchmark.generateProgram(statements)).tokenize();
+        ParserBenchmark.checkSameTree(new Parser(tokens).parse(), new LL1Parser(tokens).parse());
+        // The generated program has no functions, so check their declared types on a library
+        TokenBuffer library = new Lexer(LazyBodyBenchmark.generateLibrary(200, 10)).tokenize();
+        ParserBenchmark.checkSameTree(new Parser(library).parse(), new LL1Parser(library).parse());
+        System.out.println("Trees match (" + tokens.size() + " tokens)");
+
+        for (int round = 1; round <= 5; round++) {
+            long start = System.nanoTime();
+            for (int i = 0; i < REPEATS; i++) {
+                new Parser(tokens).parse();
+            }
+            long handNanos = (System.nanoTime() - start) / REPEATS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < REPEATS; i++) {
+                new LL1Parser(tokens).parse();
+            }
+            long tableNanos = (System.nanoTime() - start) / REPEATS;
+
+            System.out.printf("Round %d: hand-written %.0f tokens/sec, LL(1) table %.0f tokens/sec (%.2fx)%n", round,
+                    tokens.size() * 1e9 / handNanos, tokens.size() * 1e9 / tableNanos, (double) handNanos / tableNanos);
+        }
+    }
+}
@@ -0,0 +1,166 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+// Table-driven parser for the grammar in recspl.grammar. The parse loop keeps grammar
+// symbols, tree values and marks on int/Node array stacks and looks each expansion up in
+// the LL(1) table that GrammarCompiler generated into RecSplTables, so nesting depth is
+// bounded by the heap rather than the call stack. It builds the same Parser.Node trees as
+// the hand-written Parser for every program that Parser accepts; as the table follows the
+// grammar it also accepts branches and function declarations the hand-written loops
+// reject.
+public class LL1Parser {
+    // Symbol encoding shared with GrammarCompiler: a TokenType ordinal, NONTERMINAL plus a
+    // rule index, or ACTION | op << OP_SHIFT | operand << OPERAND_SHIFT | NodeKind ordinal
+    public static final int NONTERMINAL = 1 << 8;
+    public static final int ACTION = 1 << 30;
+    public static final int OP_SHIFT = 26;
+    public static final int OPERAND_SHIFT = 8;
+    public static final int OPERAND_MASK = (1 << OP_SHIFT - OPERAND_SHIFT) - 1;
+
+    public static final int MARK = 0;      // <
+    public static final int BUILD = 1;     // @Kind, or @Kind/n when the operand is n + 1
+    public static final int EMPTY = 2;     // +Kind
+    public static final int NULL = 3;      // ~
+    public static final int CAPTURE = 4;   // Kind:TOKEN, with the TokenType ordinal as operand
+    public static final int KEEP = 5;      // =TOKEN, with the TokenType ordinal as operand
+    public static final int TYPED = 6;     // ^
+
+    private static final TokenType[] TYPES = TokenType.values();
+    private static final NodeKind[] KINDS = NodeKind.values();
+
+    static {
+        if (RecSplTables.TOKEN_TYPES != TYPES.length) {
+            throw new RuntimeException("RecSplTables is out of date with TokenType; rerun GrammarCompiler");
+        }
+    }
+
+    private final TokenSource tokens;
+    private CompilerTraceListener trace; // Null unless tracing was asked for
+
+    public LL1Parser(TokenSource tokens) {
+        this.tokens = tokens;
+    }
+
+    public LL1Parser(Lexer lexer) {
+        this(new TokenStream(lexer));
+    }
+
+    public LL1Parser(TokenBuffer tokens) {
+        this(tokens.cursor(0));
+    }
+
+    public void setTraceListener(CompilerTraceListener trace) {
+        this.trace = trace;
+    }
+
+    public Parser.Node parse() {
+        int[] symbols = new int[64];
+        Parser.Node[] values = new Parser.Node[64];
+        int[] marks = new int[16];
+        String[] kept = new String[16]; // Texts of =TOKEN matches not yet taken by a ^
+        int keptTop = 0;
+        int symbolTop = 0;
+        int valueTop = 0;
+        int markTop = 0;
+        symbols[symbolTop++] = NONTERMINAL + RecSplTables.START;
+
+        while (symbolTop > 0) {
+            int symbol = symbols[--symbolTop];
+            if (symbol < NONTERMINAL) {
+                match(symbol);
+            } else if (symbol < ACTION) {
+                // Expand the rule, pushing the chosen alternative right to left
+                int rule = symbol - NONTERMINAL;
+                TokenType type = tokens.type();
+                int production = RecSplTables.TABLE[rule * RecSplTables.TOKEN_TYPES + type.ordinal()];
+                if (production < 0) {
+                    throw new RuntimeException("Unexpected token " + type + " in " + RecSplTables.RULES[rule]
+                            + ", expected one of " + expected(rule));
+                }
+                if (trace != null) {
+                    trace.ruleEntered(RecSplTables.RULES[rule]);
+                }
+                int from = RecSplTables.PRODUCTION_STARTS[production];
+                int to = RecSplTables.PRODUCTION_STARTS[production + 1];
+                if (symbolTop + to - from > symbols.length) {
+                    symbols = Arrays.copyOf(symbols, Math.max(symbols.length * 2, symbolTop + to - from));
+                }
+                for (int i = to - 1; i >= from; i--) {
+                    symbols[symbolTop++] = RecSplTables.PRODUCTIONS[i];
+                }
+            } else {
+                int op = (symbol >>> OP_SHIFT) & 0xF;
+                int operand = symbol >>> OPERAND_SHIFT & OPERAND_MASK;
+                NodeKind kind = KINDS[symbol & 0xFF];
+                if (valueTop == values.length) {
+                    values = Arrays.copyOf(values, values.length * 2);
+                }
+                switch (op) {
+                    case MARK:
+                        if (markTop == marks.length) {
+                            marks = Arrays.copyOf(marks, marks.length * 2);
+                        }
+                        marks[markTop++] = valueTop;
+                        break;
+                    case BUILD:
+                        int count = operand == 0 ? valueTop - marks[--markTop] : operand - 1;
+                        valueTop -= count;
+                        Parser.Node[] children = Arrays.copyOfRange(values, valueTop, valueTop + count);
+                        Arrays.fill(values, valueTop, valueTop + count, null);
+                        values[valueTop++] = new Parser.Node(kind, children);
+                        break;
+                    case EMPTY:
+                        values[valueTop++] = new Parser.Node(kind);
+                        break;
+                    case NULL:
+                        values[valueTop++] = null;
+                        break;
+                    case CAPTURE:
+                        Parser.Node leaf = new Parser.Node(kind, tokens.text());
+                        if (leaf.kind.isName()) {
+                            leaf.symbol = tokens.symbol();
+                        }
+                        match(operand);
+                        values[valueTop++] = leaf;
+                        break;
+                    case KEEP:
+                        if (keptTop == kept.length) {
+                            kept = Arrays.copyOf(kept, kept.length * 2);
+                        }
+                        kept[keptTop++] = tokens.text();
+                        match(operand);
+                        break;
+                    case TYPED:
+                        values[valueTop - 1].declaredType = kept[--keptTop];
+                        kept[keptTop] = null;
+                        break;
+                    default:
+                        throw new RuntimeException("Unknown parser action " + op);
+                }
+            }
+        }
+        return values[0];
+    }
+
+    private void match(int expected) {
+        TokenType type = tokens.type();
+        if (type.ordinal() != expected) {
+            throw new RuntimeException("Expected token: " + TYPES[expected] + ", but found: " + type);
+        }
+        if (trace != null) {
+            trace.tokenMatched(type, tokens.text());
+        }
+        tokens.advance();
+    }
+
+    private static List<TokenType> expected(int rule) {
+        List<TokenType> expected = new ArrayList<>();
+        for (int t = 0; t < RecSplTables.TOKEN_TYPES; t++) {
+            if (RecSplTables.TABLE[rule * RecSplTables.TOKEN_TYPES + t] >= 0) {
+                expected.add(TYPES[t]);
+            }
+        }
+        return expected;
+    }
+}
@@ -0,0 +1,97 @@
+import java.lang.ref.Reference;
+
+// Parse time and retained tree memory for a library of many functions that main never
+// calls, parsed eagerly and with lazy function bodies.
+// Run with: java LazyBodyBenchmark [functions] [statements per function]
+public class LazyBodyBenchmark {
+    private static final int REPEATS = 5;
+    private static final int RETAINED_COPIES = 4; // Trees held at once when measuring memory
+
+    public static void main(String[] args) {
+        int functions = args.length > 0 ? Integer.parseInt(args[0]) : 5_000;
+        int statements = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        TokenBuffer tokens = new Lexer(generateLibrary(functions, statements)).tokenize();
+
+        Parser.Node eager = parse(tokens, false);
+        Parser.Node lazy = parse(tokens, true);
+        if (!eager.toString().equals(lazy.toString())) { // toString() materializes every body
+            throw new RuntimeException("Lazy bodies parsed to a different tree");
+        }
+        System.out.println("Trees match (" + tokens.size() + " tokens, " + functions + " functions)");
+
+        for (int round = 1; round <= 5; round++) {
+            long eagerNanos = time(tokens, false);
+            long lazyNanos = time(tokens, true);
+            System.out.printf("Round %d: eager %.1f ms, lazy %.1f ms (%.1fx)%n", round, eagerNanos / 1e6,
+                    lazyNanos / 1e6, (double) eagerNanos / lazyNanos);
+        }
+        printRetained(tokens);
+    }
+
+    // main only touches its own variable; every function has a body of the given length
+    static String generateLibrary(int functions, int statements) {
+        StringBuilder code = new StringBuilder("main\n{\n  num V_a;\n  V_a = input;\n  print(V_a);\n");
+        for (int f = 0; f < functions; f++) {
+            code.append("  num F_lib").append(f).append("(num V_x, num V_y)\n  {\n    num V_t, text V_s;\n");
+            for (int i = 0; i < statements; i++) {
+                if (i % 2 == 0) {
+                    code.append("    V_t = F_lib").append((f + i) % functions).append("(V_x, ").append(i).append(", \"s\");\n");
+                } else {
+                    code.append("    print(V_t);\n");
+                }
+            }
+            code.append("  }\n");
+        }
+        return code.append("}\n").toString();
+    }
+
+    static Parser.Node parse(TokenBuffer tokens, boolean lazy) {
+        Parser parser = new Parser(tokens);
+        parser.setLazyFunctionBodies(lazy);
+        return parser.parse();
+    }
+
+    static long time(TokenBuffer tokens, boolean lazy) {
+        long start = System.nanoTime();
+        for (int i = 0; i < REPEATS; i++) {
+            parse(tokens, lazy);
+        }
+        return (System.nanoTime() - start) / REPEATS;
+    }
+
+    // Heap held per tree, averaged over several copies of each kind. All copies stay
+    // reachable until both kinds have been measured.
+    static void printRetained(TokenBuffer tokens) {
+        Parser.Node[] eager = new Parser.Node[RETAINED_COPIES];
+        Parser.Node[] lazy = new Parser.Node[RETAINED_COPIES];
+        long before = usedHeap();
+        for (int i = 0; i < RETAINED_COPIES; i++) {
+            eager[i] = parse(tokens, false);
+        }
+        long afterEager = usedHeap();
+        for (int i = 0; i < RETAINED_COPIES; i++) {
+            lazy[i] = parse(tokens, true);
+        }
+        long afterLazy = usedHeap();
+        Reference.reachabilityFence(eager);
+        Reference.reachabilityFence(lazy);
+        System.out.printf("Retained tree: eager %d KB, lazy %d KB%n", (afterEager - before) / RETAINED_COPIES / 1024,
+                (afterLazy - afterEager) / RETAINED_COPIES / 1024);
+    }
+
+    // Used heap once collections stop changing it. A single System.gc() may leave garbage
+    // behind, so readings after one call are not comparable.
+    static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        long previous = Long.MAX_VALUE;
+        for (int i = 0; i < 20; i++) {
+            System.gc();
+            long used = runtime.totalMemory() - runtime.freeMemory();
+            if (Math.abs(previous - used) < 64 * 1024) {
+                return used;
+            }
+            previous = used;
+        }
+        return previous;
+    }
+}
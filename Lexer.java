@@ -1,228 +1,399 @@
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
-import java.io.FileWriter;
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.List;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
+import java.nio.file.Path;
 
 public class Lexer {
-    private String input;
+    private CharSequence input;
     private int position;
-    private Matcher matcher;
-    private List<Token> tokens = new ArrayList<>();
-
-    // Updated regex pattern for tokens according to RecSPL 2024 specification
-    private static final Pattern TOKEN_PATTERN = Pattern.compile(
-            "(if|then|else|print|halt|begin|end|main|num|text|function|skip|not|sqrt|or|and|eq|grt|add|sub|mul|div|return|input)|"
-                    + // Added input
-                    "(V_[a-z][a-z0-9]*)|" + // Variable names with V_ prefix
-                    "(F_[a-z][a-z0-9]*)|" + // Function names with F_ prefix
-                    "\"[^\"]*\"|" + // Text strings (allows any character except double quotes)
-                    "-?[0-9]+(\\.[0-9]+)?|" + // Numeric constants (integers and decimals)
-                    "(=|<|>|\\+|-|\\*|/)|" + // Operators including <
-                    "(\\(|\\)|;|,|\\{|\\})" // Delimiters
-    );
-
-    public Lexer(String input) {
+    private int limit; // Lexing stops here, the end of the input unless a region was given
+    private int tokenStart; // Offset of the token last returned by nextKind
+    private int tokenLength; // Length of the token last returned by nextKind
+    private int tokenSymbol = -1; // Interned ID of the name last returned by nextKind, or -1
+    private Interner interner;
+    private boolean fastScan; // See setFastScan
+
+    public Lexer(CharSequence input) {
+        this(input, 0, input.length());
+    }
+
+    // Lexes only the region [start, limit) of the input; token offsets stay absolute
+    public Lexer(CharSequence input, int start, int limit) {
         this.input = input;
-        this.position = 0;
-        this.matcher = TOKEN_PATTERN.matcher(input);
+        this.position = start;
+        this.limit = limit;
+    }
+
+    // Interns every VNAME and FNAME into the given compile-wide interner as it is lexed
+    public Lexer(CharSequence input, Interner interner) {
+        this(input);
+        this.interner = interner;
+    }
+
+    public Lexer(CharSequence input, int start, int limit, Interner interner) {
+        this(input, start, limit);
+        this.interner = interner;
+    }
+
+    // Lexes a source file straight from a read-only memory mapping when it is pure ASCII,
+    // falling back to a decoded String otherwise
+    public static Lexer fromFile(Path path) throws IOException {
+        return new Lexer(AsciiSource.map(path));
     }
 
     public Token nextToken() {
+        TokenType type = nextKind();
+        return new Token(type, input, tokenStart, tokenLength);
+    }
+
+    // Lexes the rest of the input into a struct-of-arrays buffer. The EOF token is not stored.
+    public TokenBuffer tokenize() {
+        TokenBuffer buffer = new TokenBuffer(input, interner, Math.max(16, (limit - position) / 4));
+        TokenType type;
+        while ((type = nextKind()) != TokenType.EOF) {
+            buffer.add(type, tokenStart, tokenLength, tokenSymbol);
+        }
+        return buffer;
+    }
+
+    // Zero-copy scanning: returns the kind of the next token and records its offset and
+    // length into the source (see tokenStart/tokenLength) without allocating anything.
+    // The scanner is a hand-coded DFA over the RecSPL 2024 token classes. Each token is
+    // recognised by dispatching on its first character, so no regex runs per token.
+    public TokenType nextKind() {
         // Skip over whitespace
-        while (position < input.length() && Character.isWhitespace(input.charAt(position))) {
+        if (fastScan && input instanceof AsciiSource) {
+            position = ((AsciiSource) input).skipWhitespace(position, limit);
+        }
+        while (position < limit && Character.isWhitespace(input.charAt(position))) {
             position++;
         }
 
         // If we reached the end of the input, return EOF token
-        if (position >= input.length()) {
-            return new Token(TokenType.EOF, "");
+        if (position >= limit) {
+            tokenStart = limit;
+            tokenLength = 0;
+            tokenSymbol = -1;
+            return TokenType.EOF;
         }
 
-        matcher.region(position, input.length()); // Set the matching region to the current position
-        if (matcher.lookingAt()) {
-            String tokenText = matcher.group();
-            position += tokenText.length(); // Move position forward by the length of the matched token
-
-            // System.out.println("Processing token: " + tokenText); // Added debugging
-            // output
-            return classifyToken(tokenText); // Classify the token
+        int start = position;
+        TokenType type = scanToken();
+        if (type != null) {
+            tokenStart = start;
+            tokenLength = position - start;
+            tokenSymbol = interner != null && (type == TokenType.VNAME || type == TokenType.FNAME)
+                    ? interner.intern(input, start, tokenLength)
+                    : -1;
+            return type;
         }
 
         // If no token is matched, throw an error with the current character
+        position = start;
         char currentChar = input.charAt(position);
         System.out.println("Current character at position " + position + ": " + currentChar); // Debug output
         throw new RuntimeException("Unexpected character: " + currentChar + " at position " + position);
     }
 
-    private Token classifyToken(String tokenText) {
-        // Keywords
-        switch (tokenText) {
-            case "if":
-                return new Token(TokenType.IF, tokenText);
-            case "then":
-                return new Token(TokenType.THEN, tokenText);
-            case "else":
-                return new Token(TokenType.ELSE, tokenText);
-            case "print":
-                return new Token(TokenType.PRINT, tokenText);
-            case "halt":
-                return new Token(TokenType.HALT, tokenText);
-            case "begin":
-                return new Token(TokenType.BEGIN, tokenText);
-            case "end":
-                return new Token(TokenType.END, tokenText);
-            case "main":
-                return new Token(TokenType.MAIN, tokenText);
-            case "num":
-                return new Token(TokenType.TYPE, tokenText); // Type for numeric
-            case "text":
-                return new Token(TokenType.TYPE, tokenText); // Type for text
-            case "skip":
-                return new Token(TokenType.SKIP, tokenText);
-            case "function":
-                return new Token(TokenType.FUNCTION, tokenText);
-            case "return":
-                return new Token(TokenType.RETURN, tokenText);
-            case "input":
-                return new Token(TokenType.INPUT, tokenText);
-            case "add":
-                return new Token(TokenType.ADD, tokenText);
-            case "sub":
-                return new Token(TokenType.SUB, tokenText);
-            case "mul":
-                return new Token(TokenType.MUL, tokenText);
-            case "div":
-                return new Token(TokenType.DIV, tokenText);
-            case "grt":
-                return new Token(TokenType.GRT, tokenText);
-            case "eq":
-                return new Token(TokenType.EQ, tokenText);
-            case "not":
-                return new Token(TokenType.UNARY, tokenText);
-            case "sqrt":
-                return new Token(TokenType.UNARY, tokenText);
-            case "or":
-                return new Token(TokenType.BINARY, tokenText);
-            case "and":
-                return new Token(TokenType.BINARY, tokenText);
-        }
-
-        // Handle variable names with V_ prefix
-        if (tokenText.matches("V_[a-z][a-z0-9]*")) {
-            return new Token(TokenType.VNAME, tokenText);
-        }
-        // Handle function names with F_ prefix
-        else if (tokenText.matches("F_[a-z][a-z0-9]*")) {
-            return new Token(TokenType.FNAME, tokenText);
-        }
-        // Handle text strings
-        else if (tokenText.matches("\"[^\"]*\"")) {
-            return new Token(TokenType.TEXT, tokenText);
-        }
-        // Handle numeric constants
-        else if (tokenText.matches("-?[0-9]+(\\.[0-9]+)?")) {
-            return new Token(TokenType.CONST, tokenText);
-        }
-
-        // Handle operators and delimiters
-        switch (tokenText) {
-            case "=":
-                return new Token(TokenType.ASSIGN, tokenText);
-            case ">":
-                return new Token(TokenType.GRT, tokenText);
-            case "<":
-                return new Token(TokenType.LESS, tokenText);
-            case "+":
-                return new Token(TokenType.ADD, tokenText);
-            case "-":
-                return new Token(TokenType.SUB, tokenText);
-            case "*":
-                return new Token(TokenType.MUL, tokenText);
-            case "/":
-                return new Token(TokenType.DIV, tokenText);
-            case "(":
-                return new Token(TokenType.LPAREN, tokenText);
-            case ")":
-                return new Token(TokenType.RPAREN, tokenText);
-            case ";":
-                return new Token(TokenType.SEMICOLON, tokenText);
-            case ",":
-                return new Token(TokenType.COMMA, tokenText);
-            case "{":
-                return new Token(TokenType.LCURLY, tokenText);
-            case "}":
-                return new Token(TokenType.RCURLY, tokenText);
-        }
-
-        throw new RuntimeException("Unexpected token: " + tokenText);
+    // Scans one token starting at position and advances past it, or returns null if no
+    // token class matches
+    private TokenType scanToken() {
+        char c = input.charAt(position);
+        if (c < SINGLE_CHAR.length && SINGLE_CHAR[c] != null) {
+            position++;
+            return SINGLE_CHAR[c];
+        }
+        switch (c) {
+            case '-':
+                // A minus directly followed by a digit is a negative constant
+                if (isDigit(charAt(position + 1))) {
+                    position++;
+                    return scanNumber();
+                }
+                position++;
+                return TokenType.SUB;
+            case '"':
+                return scanText();
+            case 'V':
+                return scanName(TokenType.VNAME);
+            case 'F':
+                return scanName(TokenType.FNAME);
+            default:
+                if (isDigit(c)) {
+                    return scanNumber();
+                }
+                if (isLower(c)) {
+                    return scanKeyword();
+                }
+                return null;
+        }
     }
 
-    public void writeTokensToXML(String filename) throws IOException {
-        try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.newDocument();
-
-            Element rootElement = doc.createElement("TOKENSTREAM");
-            doc.appendChild(rootElement);
+    // -?[0-9]+(\.[0-9]+)? with the optional minus already consumed
+    private TokenType scanNumber() {
+        while (isDigit(charAt(position))) {
+            position++;
+        }
+        if (charAt(position) == '.' && isDigit(charAt(position + 1))) {
+            position++;
+            while (isDigit(charAt(position))) {
+                position++;
+            }
+        }
+        return TokenType.CONST;
+    }
 
-            for (int i = 0; i < tokens.size(); i++) {
-                Token token = tokens.get(i);
+    // "[^"]*"
+    private TokenType scanText() {
+        int end = position + 1;
+        while (end < limit && input.charAt(end) != '"') {
+            end++;
+        }
+        if (end >= limit) {
+            return null; // Unterminated text literal
+        }
+        position = end + 1;
+        return TokenType.TEXT;
+    }
 
-                Element tokElement = doc.createElement("TOK");
-                rootElement.appendChild(tokElement);
+    // V_[a-z][a-z0-9]* and F_[a-z][a-z0-9]*
+    private TokenType scanName(TokenType type) {
+        if (charAt(position + 1) != '_' || !isLower(charAt(position + 2))) {
+            return null;
+        }
+        position += 3;
+        if (fastScan && input instanceof AsciiSource) {
+            position = ((AsciiSource) input).skipIdentifierTail(position, limit);
+        }
+        while (isLower(charAt(position)) || isDigit(charAt(position))) {
+            position++;
+        }
+        return type;
+    }
 
-                Element idElement = doc.createElement("ID");
-                idElement.appendChild(doc.createTextNode(String.valueOf(i + 1)));
-                tokElement.appendChild(idElement);
+    // Keywords are looked up with a perfect hash over the run of lowercase letters at the
+    // current position. A run that is not a keyword falls back to matching a keyword as a
+    // prefix of it, like the keyword alternation of the old token pattern did (e.g. "ifthen"
+    // lexes as IF THEN); no keyword is a prefix of another one.
+    private TokenType scanKeyword() {
+        int end = position + 1;
+        while (isLower(charAt(end))) {
+            end++;
+        }
+        TokenType type = keywordType(input, position, end - position);
+        if (type != null) {
+            position = end;
+            return type;
+        }
+        for (int i = 0; i < KEYWORDS.length; i++) {
+            String word = KEYWORDS[i];
+            if (word.length() < end - position && matches(word, input, position)) {
+                position += word.length();
+                return KEYWORD_TYPES[i];
+            }
+        }
+        return null;
+    }
 
-                Element classElement = doc.createElement("CLASS");
-                classElement.appendChild(doc.createTextNode(token.type.toString()));
-                tokElement.appendChild(classElement);
+    // Type of the keyword spelled by the given slice, or null if it is not a keyword. The
+    // hash (first + 4 * second + 2 * length) & 63 has no collisions over the RecSPL keywords.
+    static TokenType keywordType(CharSequence text, int start, int length) {
+        if (length < 2) {
+            return null;
+        }
+        int slot = (text.charAt(start) + 4 * text.charAt(start + 1) + 2 * length) & (KEYWORD_TABLE.length - 1);
+        String word = KEYWORD_TABLE[slot];
+        if (word == null || word.length() != length || !matches(word, text, start)) {
+            return null;
+        }
+        return KEYWORD_TABLE_TYPES[slot];
+    }
 
-                Element wordElement = doc.createElement("WORD");
-                wordElement.appendChild(doc.createTextNode(token.value));
-                tokElement.appendChild(wordElement);
+    private static boolean matches(String word, CharSequence text, int start) {
+        for (int i = 0; i < word.length(); i++) {
+            if (text.charAt(start + i) != word.charAt(i)) {
+                return false;
             }
+        }
+        return true;
+    }
+
+    // Character at the given index, or 0 past the end of the input
+    private char charAt(int index) {
+        return index < limit ? input.charAt(index) : 0;
+    }
+
+    // Scans whitespace runs and identifier tails a word at a time when the input is a
+    // mapped ASCII source. The tokens are the same either way.
+    public void setFastScan(boolean fastScan) {
+        this.fastScan = fastScan;
+    }
+
+    public int tokenStart() {
+        return tokenStart;
+    }
+
+    public int tokenLength() {
+        return tokenLength;
+    }
 
-            // Write the XML content to file
-            FileWriter writer = new FileWriter(filename);
-            writer.write(convertDocumentToString(doc));
-            writer.close();
-        } catch (ParserConfigurationException e) {
-            e.printStackTrace();
+    public int tokenSymbol() {
+        return tokenSymbol;
+    }
+
+    public CharSequence source() {
+        return input;
+    }
+
+    public Interner interner() {
+        return interner;
+    }
+
+    // Text of a token. Keywords, operators and delimiters return their constant spelling,
+    // so only names and literals copy characters out of the source.
+    public static String text(TokenType type, CharSequence source, int start, int length) {
+        switch (type) {
+            case VNAME:
+            case FNAME:
+            case CONST:
+            case TEXT:
+                return source.subSequence(start, start + length).toString();
+            case TYPE:
+                return source.charAt(start) == 'n' ? "num" : "text";
+            case UNARY:
+                return source.charAt(start) == 'n' ? "not" : "sqrt";
+            case BINARY:
+                return source.charAt(start) == 'o' ? "or" : "and";
+            case GRT:
+                return length == 1 ? ">" : "grt";
+            case ADD:
+                return length == 1 ? "+" : "add";
+            case SUB:
+                return length == 1 ? "-" : "sub";
+            case MUL:
+                return length == 1 ? "*" : "mul";
+            case DIV:
+                return length == 1 ? "/" : "div";
+            default:
+                return SPELLINGS[type.ordinal()];
         }
     }
 
-    private String convertDocumentToString(Document doc) {
-        try {
-            javax.xml.transform.TransformerFactory tf = javax.xml.transform.TransformerFactory.newInstance();
-            javax.xml.transform.Transformer transformer = tf.newTransformer();
-            java.io.StringWriter writer = new java.io.StringWriter();
-            transformer.transform(new javax.xml.transform.dom.DOMSource(doc),
-                    new javax.xml.transform.stream.StreamResult(writer));
-            return writer.getBuffer().toString();
-        } catch (Exception e) {
-            e.printStackTrace();
-            return "";
+    private static final String[] KEYWORDS = {
+            "if", "then", "else", "print", "halt", "begin", "end", "main", "num", "text", "function", "skip",
+            "not", "sqrt", "or", "and", "eq", "grt", "add", "sub", "mul", "div", "return", "input"
+    };
+
+    private static final TokenType[] KEYWORD_TYPES = {
+            TokenType.IF, TokenType.THEN, TokenType.ELSE, TokenType.PRINT, TokenType.HALT, TokenType.BEGIN,
+            TokenType.END, TokenType.MAIN, TokenType.TYPE, TokenType.TYPE, TokenType.FUNCTION, TokenType.SKIP,
+            TokenType.UNARY, TokenType.UNARY, TokenType.BINARY, TokenType.BINARY, TokenType.EQ, TokenType.GRT,
+            TokenType.ADD, TokenType.SUB, TokenType.MUL, TokenType.DIV, TokenType.RETURN, TokenType.INPUT
+    };
+
+    // Perfect hash table over KEYWORDS, filled once when the class is loaded
+    private static final String[] KEYWORD_TABLE = new String[64];
+    private static final TokenType[] KEYWORD_TABLE_TYPES = new TokenType[64];
+
+    // Single-character operators and delimiters by ASCII code ('-' is handled separately
+    // because it may start a negative constant)
+    private static final TokenType[] SINGLE_CHAR = new TokenType[128];
+
+    static {
+        for (int i = 0; i < KEYWORDS.length; i++) {
+            String word = KEYWORDS[i];
+            int slot = (word.charAt(0) + 4 * word.charAt(1) + 2 * word.length()) & (KEYWORD_TABLE.length - 1);
+            if (KEYWORD_TABLE[slot] != null) {
+                throw new IllegalStateException("Keyword hash collision: " + word + " and " + KEYWORD_TABLE[slot]);
+            }
+            KEYWORD_TABLE[slot] = word;
+            KEYWORD_TABLE_TYPES[slot] = KEYWORD_TYPES[i];
         }
+
+        SINGLE_CHAR['='] = TokenType.ASSIGN;
+        SINGLE_CHAR['<'] = TokenType.LESS;
+        SINGLE_CHAR['>'] = TokenType.GRT;
+        SINGLE_CHAR['+'] = TokenType.ADD;
+        SINGLE_CHAR['*'] = TokenType.MUL;
+        SINGLE_CHAR['/'] = TokenType.DIV;
+        SINGLE_CHAR['('] = TokenType.LPAREN;
+        SINGLE_CHAR[')'] = TokenType.RPAREN;
+        SINGLE_CHAR[';'] = TokenType.SEMICOLON;
+        SINGLE_CHAR[','] = TokenType.COMMA;
+        SINGLE_CHAR['{'] = TokenType.LCURLY;
+        SINGLE_CHAR['}'] = TokenType.RCURLY;
+    }
+
+    // Spelling of a token type that always has the same text, or null
+    public static String fixedSpelling(TokenType type) {
+        return SPELLINGS[type.ordinal()];
+    }
+
+    // Constant spelling of every token type that has exactly one
+    private static final String[] SPELLINGS = new String[TokenType.values().length];
+
+    static {
+        SPELLINGS[TokenType.IF.ordinal()] = "if";
+        SPELLINGS[TokenType.THEN.ordinal()] = "then";
+        SPELLINGS[TokenType.ELSE.ordinal()] = "else";
+        SPELLINGS[TokenType.PRINT.ordinal()] = "print";
+        SPELLINGS[TokenType.HALT.ordinal()] = "halt";
+        SPELLINGS[TokenType.BEGIN.ordinal()] = "begin";
+        SPELLINGS[TokenType.END.ordinal()] = "end";
+        SPELLINGS[TokenType.MAIN.ordinal()] = "main";
+        SPELLINGS[TokenType.SKIP.ordinal()] = "skip";
+        SPELLINGS[TokenType.FUNCTION.ordinal()] = "function";
+        SPELLINGS[TokenType.RETURN.ordinal()] = "return";
+        SPELLINGS[TokenType.INPUT.ordinal()] = "input";
+        SPELLINGS[TokenType.ASSIGN.ordinal()] = "=";
+        SPELLINGS[TokenType.LESS.ordinal()] = "<";
+        SPELLINGS[TokenType.EQ.ordinal()] = "eq";
+        SPELLINGS[TokenType.LPAREN.ordinal()] = "(";
+        SPELLINGS[TokenType.RPAREN.ordinal()] = ")";
+        SPELLINGS[TokenType.SEMICOLON.ordinal()] = ";";
+        SPELLINGS[TokenType.COMMA.ordinal()] = ",";
+        SPELLINGS[TokenType.LCURLY.ordinal()] = "{";
+        SPELLINGS[TokenType.RCURLY.ordinal()] = "}";
+        SPELLINGS[TokenType.EOF.ordinal()] = "";
+    }
+
+    private static boolean isDigit(char c) {
+        return c >= '0' && c <= '9';
+    }
+
+    private static boolean isLower(char c) {
+        return c >= 'a' && c <= 'z';
     }
 
-    // Token class definition
+    // Streams the remaining tokens of this lexer to a TOKENSTREAM XML file
+    public void writeTokensToXML(String filename) throws IOException {
+        TokenStreamXml.write(new TokenStream(this), filename);
+    }
+
+    // Token class definition. A token is a slice of the source buffer; its text is only
+    // made when value() is first called.
     public static class Token {
         public final TokenType type;
-        public final String value;
+        public final int start;
+        public final int length;
+        private final CharSequence source;
+        private String value;
 
         public Token(TokenType type, String value) {
-            this.type = type;
+            this(type, value, 0, value.length());
             this.value = value;
         }
+
+        public Token(TokenType type, CharSequence source, int start, int length) {
+            this.type = type;
+            this.source = source;
+            this.start = start;
+            this.length = length;
+        }
+
+        public String value() {
+            if (value == null) {
+                value = text(type, source, start, length);
+            }
+            return value;
+        }
     }
 }
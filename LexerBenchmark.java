@@ -0,0 +1,193 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+// Compares lexing throughput of the hand-coded Lexer against the original regex lexer
+// on large generated RecSPL sources. Run with: java LexerBenchmark [statements]
+public class LexerBenchmark {
+
+    public static void main(String[] args) {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 200_000;
+        String source = generateSource(statements);
+        System.out.println("Source size: " + source.length() + " chars");
+
+        // Both lexers must agree token for token before their speed is worth comparing
+        List<Lexer.Token> expected = lexRegex(source);
+        List<Lexer.Token> actual = lexDfa(source);
+        if (expected.size() != actual.size()) {
+            throw new RuntimeException("Token count mismatch: " + expected.size() + " vs " + actual.size());
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            if (expected.get(i).type != actual.get(i).type || !expected.get(i).value().equals(actual.get(i).value())) {
+                throw new RuntimeException("Token mismatch at index " + i);
+            }
+        }
+        System.out.println("Token streams match (" + actual.size() + " tokens)");
+
+        for (int round = 1; round <= 5; round++) {
+            long regexNanos = time(() -> lexRegex(source));
+            long dfaNanos = time(() -> lexDfa(source));
+            long zeroCopyNanos = time(() -> countKinds(source));
+            System.out.printf("Round %d: regex %.0f tokens/sec, dfa %.0f tokens/sec (%.1fx), zero-copy %.0f tokens/sec%n",
+                    round, tokensPerSecond(actual.size(), regexNanos), tokensPerSecond(actual.size(), dfaNanos),
+                    (double) regexNanos / dfaNanos, tokensPerSecond(actual.size(), zeroCopyNanos));
+        }
+    }
+
+    // Builds a program in the style of our machine-generated sources
+    static String generateSource(int statements) {
+        StringBuilder code = new StringBuilder("main\n{\n  num V_a, num V_b, text V_msg;\n");
+        for (int i = 0; i < statements; i++) {
+            switch (i % 5) {
+                case 0:
+                    code.append("  V_a").append(i % 97).append(" = input;\n");
+                    break;
+                case 1:
+                    code.append("  V_b = F_logic").append(i % 13).append("(V_a, -").append(i).append(".5, 0);\n");
+                    break;
+                case 2:
+                    code.append("  V_msg = \"hello\";\n");
+                    break;
+                case 3:
+                    code.append("  if and(eq(V_a, 1), grt(V_b, 2)) then print(V_a); else skip;\n");
+                    break;
+                default:
+                    code.append("  V_a = add(V_a, sub(V_b, mul(").append(i).append(", div(V_a, 3))));\n");
+                    break;
+            }
+        }
+        return code.append("}\n").toString();
+    }
+
+    static long time(Runnable task) {
+        long start = System.nanoTime();
+        task.run();
+        return System.nanoTime() - start;
+    }
+
+    static double tokensPerSecond(int tokens, long nanos) {
+        return tokens * 1e9 / nanos;
+    }
+
+    static List<Lexer.Token> lexDfa(String source) {
+        Lexer lexer = new Lexer(source);
+        List<Lexer.Token> tokens = new ArrayList<>();
+        Lexer.Token token;
+        while ((token = lexer.nextToken()).type != TokenType.EOF) {
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    // Scans with nextKind only, which allocates nothing per token
+    static int countKinds(String source) {
+        Lexer lexer = new Lexer(source);
+        int count = 0;
+        while (lexer.nextKind() != TokenType.EOF) {
+            count++;
+        }
+        return count;
+    }
+
+    static List<Lexer.Token> lexRegex(String source) {
+        RegexLexer lexer = new RegexLexer(source);
+        List<Lexer.Token> tokens = new ArrayList<>();
+        Lexer.Token token;
+        while ((token = lexer.nextToken()).type != TokenType.EOF) {
+            tokens.add(token);
+        }
+        return tokens;
+    }
+
+    // The regex-driven lexer the DFA replaced, kept as the baseline for comparison
+    static class RegexLexer {
+        private static final Pattern TOKEN_PATTERN = Pattern.compile(
+                "(if|then|else|print|halt|begin|end|main|num|text|function|skip|not|sqrt|or|and|eq|grt|add|sub|mul|div|return|input)|"
+                        + "(V_[a-z][a-z0-9]*)|"
+                        + "(F_[a-z][a-z0-9]*)|"
+                        + "\"[^\"]*\"|"
+                        + "-?[0-9]+(\\.[0-9]+)?|"
+                        + "(=|<|>|\\+|-|\\*|/)|"
+                        + "(\\(|\\)|;|,|\\{|\\})");
+
+        private final String input;
+        private final Matcher matcher;
+        private int position;
+
+        RegexLexer(String input) {
+            this.input = input;
+            this.matcher = TOKEN_PATTERN.matcher(input);
+        }
+
+        Lexer.Token nextToken() {
+            while (position < input.length() && Character.isWhitespace(input.charAt(position))) {
+                position++;
+            }
+            if (position >= input.length()) {
+                return new Lexer.Token(TokenType.EOF, "");
+            }
+            matcher.region(position, input.length());
+            if (!matcher.lookingAt()) {
+                throw new RuntimeException("Unexpected character: " + input.charAt(position) + " at position " + position);
+            }
+            String tokenText = matcher.group();
+            position += tokenText.length();
+            return classifyToken(tokenText);
+        }
+
+        private Lexer.Token classifyToken(String tokenText) {
+            switch (tokenText) {
+                case "if": return new Lexer.Token(TokenType.IF, tokenText);
+                case "then": return new Lexer.Token(TokenType.THEN, tokenText);
+                case "else": return new Lexer.Token(TokenType.ELSE, tokenText);
+                case "print": return new Lexer.Token(TokenType.PRINT, tokenText);
+                case "halt": return new Lexer.Token(TokenType.HALT, tokenText);
+                case "begin": return new Lexer.Token(TokenType.BEGIN, tokenText);
+                case "end": return new Lexer.Token(TokenType.END, tokenText);
+                case "main": return new Lexer.Token(TokenType.MAIN, tokenText);
+                case "num":
+                case "text": return new Lexer.Token(TokenType.TYPE, tokenText);
+                case "skip": return new Lexer.Token(TokenType.SKIP, tokenText);
+                case "function": return new Lexer.Token(TokenType.FUNCTION, tokenText);
+                case "return": return new Lexer.Token(TokenType.RETURN, tokenText);
+                case "input": return new Lexer.Token(TokenType.INPUT, tokenText);
+                case "add": return new Lexer.Token(TokenType.ADD, tokenText);
+                case "sub": return new Lexer.Token(TokenType.SUB, tokenText);
+                case "mul": return new Lexer.Token(TokenType.MUL, tokenText);
+                case "div": return new Lexer.Token(TokenType.DIV, tokenText);
+                case "grt": return new Lexer.Token(TokenType.GRT, tokenText);
+                case "eq": return new Lexer.Token(TokenType.EQ, tokenText);
+                case "not":
+                case "sqrt": return new Lexer.Token(TokenType.UNARY, tokenText);
+                case "or":
+                case "and": return new Lexer.Token(TokenType.BINARY, tokenText);
+            }
+            if (tokenText.matches("V_[a-z][a-z0-9]*")) {
+                return new Lexer.Token(TokenType.VNAME, tokenText);
+            } else if (tokenText.matches("F_[a-z][a-z0-9]*")) {
+                return new Lexer.Token(TokenType.FNAME, tokenText);
+            } else if (tokenText.matches("\"[^\"]*\"")) {
+                return new Lexer.Token(TokenType.TEXT, tokenText);
+            } else if (tokenText.matches("-?[0-9]+(\\.[0-9]+)?")) {
+                return new Lexer.Token(TokenType.CONST, tokenText);
+            }
+            switch (tokenText) {
+                case "=": return new Lexer.Token(TokenType.ASSIGN, tokenText);
+                case ">": return new Lexer.Token(TokenType.GRT, tokenText);
+                case "<": return new Lexer.Token(TokenType.LESS, tokenText);
+                case "+": return new Lexer.Token(TokenType.ADD, tokenText);
+                case "-": return new Lexer.Token(TokenType.SUB, tokenText);
+                case "*": return new Lexer.Token(TokenType.MUL, tokenText);
+                case "/": return new Lexer.Token(TokenType.DIV, tokenText);
+                case "(": return new Lexer.Token(TokenType.LPAREN, tokenText);
+                case ")": return new Lexer.Token(TokenType.RPAREN, tokenText);
+                case ";": return new Lexer.Token(TokenType.SEMICOLON, tokenText);
+                case ",": return new Lexer.Token(TokenType.COMMA, tokenText);
+                case "{": return new Lexer.Token(TokenType.LCURLY, tokenText);
+                case "}": return new Lexer.Token(TokenType.RCURLY, tokenText);
+            }
+            throw new RuntimeException("Unexpected token: " + tokenText);
+        }
+    }
+}
@@ -0,0 +1,178 @@
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+// Hash-conses the atomic parts of a syntax tree. VName, FName, Const and Text leaves with
+// the same value, and FunctionCall nodes over the same (already shared) children, are
+// replaced by one canonical node, so repeated sub-expressions are stored once and the tree
+// becomes a DAG. Shared nodes are marked shared and their children lists are made
+// unmodifiable; passes must keep their results outside the nodes, as the Resolver and
+// SemanticAnalyzer do.
+//
+// This trades parse time for memory. On HashConsBenchmark's program the retained tree is
+// about half the size, but parsing takes up to 1.5x as long because every atomic node is
+// looked up. Only leaves and calls over them are shared, so programs with few repeated
+// sub-expressions pay the lookups and save little. Name leaves are found by symbol ID, so
+// the tree's names should be interned; other leaves and calls go through hash tables.
+public class NodeFactory {
+    private final Map<Object, Parser.Node> nodes = new HashMap<>();
+    private Parser.Node[] vnames = new Parser.Node[64]; // Canonical name leaves by symbol,
+    private Parser.Node[] fnames = new Parser.Node[64]; // without building a key for each
+    private int named;
+    private Parser.Node[] calls = new Parser.Node[1024]; // Canonical calls, open addressing
+    private int[] callHashes = new int[1024];
+    private int callCount;
+    private long requests;
+
+    // The canonical node equal to the given one, which becomes canonical if it is the first
+    // of its kind. Nodes of other kinds are returned unchanged.
+    public Parser.Node intern(Parser.Node node) {
+        if (node == null || node.shared) {
+            return node;
+        }
+        Object key;
+        switch (node.kind) {
+            case VNAME:
+            case FNAME:
+                if (node.symbol >= 0) {
+                    return internName(node);
+                }
+                key = new LeafKey(node.kind, node.value);
+                break;
+            case CONST:
+            case TEXT:
+                key = new LeafKey(node.kind, node.value);
+                break;
+            case FUNCTION_CALL:
+                for (Parser.Node child : node.children) {
+                    if (child == null || !child.shared) {
+                        return node; // Only calls over canonical children can be compared cheaply
+                    }
+                }
+                return internCall(node);
+            default:
+                return node;
+        }
+        requests++;
+        Parser.Node canonical = nodes.get(key);
+        if (canonical == null) {
+            nodes.put(key, canonical(node));
+            canonical = node;
+        }
+        return canonical;
+    }
+
+    private Parser.Node internName(Parser.Node node) {
+        int symbol = node.symbol;
+        if (symbol >= vnames.length) {
+            int capacity = Math.max(vnames.length * 2, symbol + 1);
+            vnames = Arrays.copyOf(vnames, capacity);
+            fnames = Arrays.copyOf(fnames, capacity);
+        }
+        Parser.Node[] table = node.kind == NodeKind.VNAME ? vnames : fnames;
+        requests++;
+        if (table[symbol] == null) {
+            table[symbol] = canonical(node);
+            named++;
+        }
+        return table[symbol];
+    }
+
+    // Children are canonical, so two calls are equal exactly when their children are the
+    // same objects. The lookup compares them in place instead of building a key.
+    private Parser.Node internCall(Parser.Node node) {
+        List<Parser.Node> children = node.children;
+        int hash = 1;
+        for (Parser.Node child : children) {
+            hash = hash * 31 + System.identityHashCode(child);
+        }
+        requests++;
+        int mask = calls.length - 1;
+        int slot = (hash ^ (hash >>> 16)) & mask;
+        for (; calls[slot] != null; slot = (slot + 1) & mask) {
+            if (callHashes[slot] == hash && sameChildren(calls[slot].children, children)) {
+                return calls[slot];
+            }
+        }
+        calls[slot] = canonical(node);
+        callHashes[slot] = hash;
+        if (2 * ++callCount > calls.length) {
+            growCalls();
+        }
+        return node;
+    }
+
+    private static boolean sameChildren(List<Parser.Node> a, List<Parser.Node> b) {
+        if (a.size() != b.size()) {
+            return false;
+        }
+        for (int i = 0; i < a.size(); i++) {
+            if (a.get(i) != b.get(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void growCalls() {
+        Parser.Node[] oldCalls = calls;
+        int[] oldHashes = callHashes;
+        calls = new Parser.Node[oldCalls.length * 2];
+        callHashes = new int[calls.length];
+        int mask = calls.length - 1;
+        for (int i = 0; i < oldCalls.length; i++) {
+            if (oldCalls[i] == null) {
+                continue;
+            }
+            int hash = oldHashes[i];
+            int slot = (hash ^ (hash >>> 16)) & mask;
+            while (calls[slot] != null) {
+                slot = (slot + 1) & mask;
+            }
+            calls[slot] = oldCalls[i];
+            callHashes[slot] = hash;
+        }
+    }
+
+    private static Parser.Node canonical(Parser.Node node) {
+        node.children = node.children.isEmpty() ? Collections.emptyList() : Collections.unmodifiableList(node.children);
+        node.shared = true;
+        return node;
+    }
+
+    // Number of distinct shared nodes
+    public int size() {
+        return nodes.size() + named + callCount;
+    }
+
+    // Number of nodes that were replaced by an existing canonical one
+    public long reused() {
+        return requests - size();
+    }
+
+    private static final class LeafKey {
+        private final NodeKind kind;
+        private final String value;
+
+        LeafKey(NodeKind kind, String value) {
+            this.kind = kind;
+            this.value = value;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof LeafKey)) {
+                return false;
+            }
+            LeafKey other = (LeafKey) o;
+            return kind == other.kind && value.equals(other.value);
+        }
+
+        @Override
+        public int hashCode() {
+            return kind.ordinal() * 31 + value.hashCode();
+        }
+    }
+}
@@ -0,0 +1,68 @@
+import java.util.HashMap;
+import java.util.Map;
+
+// Kinds of syntax tree node, so phases can dispatch with a switch instead of comparing the
+// type strings. Each kind keeps the label the parser has always used for it.
+public enum NodeKind {
+    NONE(""),                                   // Missing optional child, e.g. an absent else branch
+    PROGRAM("Program"),
+    GLOBAL_VARS("GlobalVars"),
+    VAR_NAME("VarName", true),
+    ALGORITHM("Algorithm"),
+    FUNCTIONS("Functions"),
+    FUNCTION_DECLARATION("FunctionDeclaration"),
+    FUNCTION_NAME("FunctionName", true),
+    PARAMS("Params"),
+    PARAM_TYPE("ParamType"),
+    PARAM_NAME("ParamName", true),
+    LOCAL_VARS("LocalVars"),
+    COMMAND("Command"),                         // skip or halt
+    PRINT("Print"),
+    ASSIGN("Assign"),
+    INPUT_ASSIGN("InputAssign"),
+    INPUT("Input"),
+    BRANCH("Branch"),
+    CONDITION("Condition"),
+    VNAME("VName", true),
+    FNAME("FName", true),
+    FUNCTION_CALL("FunctionCall"),
+    CONST("Const"),
+    TEXT("Text");
+
+    private static final Map<String, NodeKind> BY_LABEL = new HashMap<>();
+
+    static {
+        for (NodeKind kind : values()) {
+            BY_LABEL.put(kind.label, kind);
+        }
+    }
+
+    private final String label;
+    private final boolean name;
+
+    NodeKind(String label) {
+        this(label, false);
+    }
+
+    NodeKind(String label, boolean name) {
+        this.label = label;
+        this.name = name;
+    }
+
+    public String label() {
+        return label;
+    }
+
+    // Leaf whose value is a variable or function name
+    public boolean isName() {
+        return name;
+    }
+
+    public static NodeKind of(String label) {
+        NodeKind kind = BY_LABEL.get(label);
+        if (kind == null) {
+            throw new RuntimeException("Unknown node type: " + label);
+        }
+        return kind;
+    }
+}
@@ -0,0 +1,98 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Lexes a large source in parallel. A cheap prescan finds safe split points between
+// top-level declarations, the chunks are lexed on a ForkJoinPool and their token streams
+// are stitched back together in order. The result is the same as lexing sequentially.
+public class ParallelLexer {
+
+    public static TokenBuffer lex(CharSequence source, Interner interner, ForkJoinPool pool) {
+        return lex(source, interner, pool, pool.getParallelism() * 4);
+    }
+
+    public static TokenBuffer lex(CharSequence source, Interner interner, ForkJoinPool pool, int chunks) {
+        return lex(source, interner, pool, chunks, false);
+    }
+
+    // As above, with every chunk's Lexer set to the given fast scan mode (Lexer.setFastScan)
+    public static TokenBuffer lex(CharSequence source, Interner interner, ForkJoinPool pool, int chunks,
+            boolean fastScan) {
+        int[] splits = splitPoints(source, chunks);
+        List<ForkJoinTask<Chunk>> tasks = new ArrayList<>();
+        for (int i = 0; i + 1 < splits.length; i++) {
+            int start = splits[i];
+            int limit = splits[i + 1];
+            tasks.add(pool.submit(() -> Chunk.lex(source, start, limit, fastScan)));
+        }
+
+        // Names are interned while stitching, in source order, so IDs match a sequential lex.
+        // The first error in source order is rethrown as is, exactly as the sequential Lexer
+        // would have thrown it.
+        TokenBuffer result = new TokenBuffer(source, interner, Math.max(16, source.length() / 4));
+        for (ForkJoinTask<Chunk> task : tasks) {
+            Chunk chunk = task.join();
+            if (chunk.error != null) {
+                throw chunk.error;
+            }
+            result.append(chunk.tokens);
+        }
+        return result;
+    }
+
+    // Tokens of one chunk, or the error that stopped it. The error is carried back as a value
+    // because ForkJoinTask.join would wrap it in a new exception.
+    private static class Chunk {
+        TokenBuffer tokens;
+        RuntimeException error;
+
+        static Chunk lex(CharSequence source, int start, int limit, boolean fastScan) {
+            Chunk chunk = new Chunk();
+            try {
+                Lexer lexer = new Lexer(source, start, limit);
+                lexer.setFastScan(fastScan);
+                chunk.tokens = lexer.tokenize();
+            } catch (RuntimeException e) {
+                chunk.error = e;
+            }
+            return chunk;
+        }
+    }
+
+    // Offsets that cut the source into roughly equal chunks, starting with 0 and ending with
+    // the source length. Every inner split follows a '}' that closes a top-level declaration
+    // (brace depth back to 1 or 0) outside any text literal, so no token spans two chunks.
+    static int[] splitPoints(CharSequence source, int chunks) {
+        int length = source.length();
+        int target = Math.max(1, length / Math.max(1, chunks));
+        List<Integer> splits = new ArrayList<>();
+        splits.add(0);
+        int next = target;
+        int depth = 0;
+        boolean inText = false;
+        for (int i = 0; i < length; i++) {
+            char c = source.charAt(i);
+            if (c == '"') {
+                inText = !inText;
+            } else if (!inText) {
+                if (c == '{') {
+                    depth++;
+                } else if (c == '}') {
+                    depth--;
+                    if (depth <= 1 && i + 1 >= next && i + 1 < length) {
+                        splits.add(i + 1);
+                        next = i + 1 + target;
+                    }
+                }
+            }
+        }
+        splits.add(length);
+
+        int[] result = new int[splits.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = splits.get(i);
+        }
+        return result;
+    }
+}
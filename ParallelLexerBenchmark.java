@@ -0,0 +1,64 @@
+import java.util.concurrent.ForkJoinPool;
+
+// Scaling benchmark for ParallelLexer on a program with many top-level functions, from one
+// core up to all available cores. Run with: java ParallelLexerBenchmark [functions]
+public class ParallelLexerBenchmark {
+
+    public static void main(String[] args) {
+        int functions = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        String source = generateProgram(functions);
+        System.out.println("Source size: " + source.length() + " chars");
+
+        TokenBuffer expected = new Lexer(source, new Interner()).tokenize();
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; parallelism <= cores; parallelism = nextParallelism(parallelism, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            TokenBuffer actual = ParallelLexer.lex(source, new Interner(), pool);
+            check(expected, actual);
+
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < 5; round++) {
+                long start = System.nanoTime();
+                ParallelLexer.lex(source, new Interner(), pool);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            pool.shutdown();
+            System.out.printf("%d cores: %.1f ms, %.0f tokens/sec%n", parallelism, best / 1e6,
+                    expected.size() * 1e9 / best);
+        }
+    }
+
+    // Doubles the core count, visiting the total core count last even if it is not a power of two
+    private static int nextParallelism(int parallelism, int cores) {
+        if (parallelism == cores) {
+            return cores + 1;
+        }
+        return Math.min(parallelism * 2, cores);
+    }
+
+    private static void check(TokenBuffer expected, TokenBuffer actual) {
+        if (expected.size() != actual.size()) {
+            throw new RuntimeException("Token count mismatch: " + expected.size() + " vs " + actual.size());
+        }
+        for (int i = 0; i < expected.size(); i++) {
+            if (expected.type(i) != actual.type(i) || expected.start(i) != actual.start(i)
+                    || expected.length(i) != actual.length(i) || expected.symbol(i) != actual.symbol(i)) {
+                throw new RuntimeException("Token mismatch at index " + i);
+            }
+        }
+    }
+
+    // A main block followed by many independent function declarations
+    static String generateProgram(int functions) {
+        StringBuilder code = new StringBuilder("main\n{\n  num V_a, num V_b;\n  V_a = input;\n  print(V_a);\n}\n\n");
+        for (int i = 0; i < functions; i++) {
+            code.append("num F_f").append(i).append("(num V_x, num V_y, num V_z)\n{\n")
+                    .append("  num V_t").append(i).append(", V_u, V_w;\n")
+                    .append("  V_t").append(i).append(" = add(V_x, mul(V_y, -").append(i).append(".25));\n")
+                    .append("  V_u = \"text } with { braces\";\n")
+                    .append("  if eq(V_x, 0) then V_w = F_f").append(i).append("(V_u, V_y, 1); else skip;\n")
+                    .append("  return V_t").append(i).append(";\n}\n\n");
+        }
+        return code.toString();
+    }
+}
@@ -1,24 +1,68 @@
 import java.util.*;
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import javax.xml.parsers.ParserConfigurationException;
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import java.io.FileWriter;
-import javax.xml.transform.*;
-import javax.xml.transform.dom.DOMSource;
-import javax.xml.transform.stream.StreamResult;
 
 public class Parser {
-    private List<Lexer.Token> tokens;
-    private int currentTokenIndex;
+    private TokenSource tokens;
+    private CompilerTraceListener trace; // Null unless tracing was asked for
+    private boolean stackSafe;
+    private boolean lazyBodies;
+    private FunctionCache functionCache;
+    private NodeFactory nodeFactory;
 
-    public Parser(List<Lexer.Token> tokens) {
+    public Parser(TokenSource tokens) {
         this.tokens = tokens;
-        this.currentTokenIndex = 0;
+    }
+
+    // Streams tokens from the lexer on demand instead of lexing the whole input first
+    public Parser(Lexer lexer) {
+        this(new TokenStream(lexer));
+    }
+
+    public Parser(TokenBuffer tokens) {
+        this(tokens.cursor(0));
+    }
+
+    public Parser(List<Lexer.Token> tokens) {
+        this(TokenBuffer.of(tokens));
+    }
+
+    // Reports every token peeked and matched and every rule entered to the listener, or
+    // turns tracing off again when given null
+    public void setTraceListener(CompilerTraceListener trace) {
+        this.trace = trace;
+    }
+
+    // Parses nested branches and call arguments with an explicit stack on the heap instead
+    // of recursion, so nesting depth is not limited by the thread's stack size. The tree,
+    // trace events and errors are the same as in the default recursive mode.
+    public void setStackSafe(boolean stackSafe) {
+        this.stackSafe = stackSafe;
+    }
+
+    // Records only the signature and token range of each function body, parsing its
+    // LocalVars and Algorithm the first time they are read from the FunctionDeclaration's
+    // children. Errors in a body are reported then. Takes effect only when parsing from a
+    // TokenBuffer, as a streamed lexer cannot be rewound to the body later.
+    public void setLazyFunctionBodies(boolean lazyBodies) {
+        this.lazyBodies = lazyBodies;
+    }
+
+    // Reuses the FunctionDeclaration subtree of every function whose tokens are unchanged
+    // since the previous parse with the same cache, which then lists the functions that
+    // were rebuilt and reused. Takes effect only when parsing from a TokenBuffer.
+    public void setFunctionCache(FunctionCache functionCache) {
+        this.functionCache = functionCache;
+    }
+
+    // Shares identical VName/FName/Const/Text leaves and FunctionCall nodes in call
+    // arguments, assignment values and prints through the factory, so the result is a DAG
+    public void setNodeFactory(NodeFactory nodeFactory) {
+        this.nodeFactory = nodeFactory;
     }
 
     public Node parse() {
+        if (functionCache != null) {
+            functionCache.begin();
+        }
         return parseProgram();
     }
 
@@ -33,73 +77,123 @@ public class Parser {
         Node functions = parseFunctions(); // Parse function declarations
     
         match(TokenType.RCURLY); // Expect '}'
-        return new Node("Program", globalVars, algo, functions);
+        return new Node(NodeKind.PROGRAM, globalVars, algo, functions);
     }
     
     
     private Node parseGlobalVars() {
         List<Node> varNodes = new ArrayList<>();
         
-        // Debug statement to confirm start of global vars parsing
-        System.out.println("Parsing GlobalVars Section");
+        if (trace != null) {
+            trace.ruleEntered("GlobalVars");
+        }
     
-        while (currentToken().type == TokenType.TYPE) {
+        while (currentType() == TokenType.TYPE) {
             Node varNode = parseGlobalVar(); // Parse each variable declaration
             varNodes.add(varNode);
     
-            if (currentToken().type == TokenType.COMMA) {
+            if (currentType() == TokenType.COMMA) {
                 match(TokenType.COMMA); // Continue with more variables
-            } else if (currentToken().type == TokenType.SEMICOLON) {
+            } else if (currentType() == TokenType.SEMICOLON) {
                 match(TokenType.SEMICOLON); // End of global variables declaration
                 break;
             } else {
-                throw new RuntimeException("Expected COMMA or SEMICOLON after variable, but found: " + currentToken().type);
+                throw new RuntimeException("Expected COMMA or SEMICOLON after variable, but found: " + currentType());
             }
         }
     
-        System.out.println("Completed GlobalVars Section");
-        return new Node("GlobalVars", varNodes.toArray(new Node[0]));
+        if (trace != null) {
+            trace.ruleExited("GlobalVars");
+        }
+        return new Node(NodeKind.GLOBAL_VARS, varNodes.toArray(new Node[0]));
     }
     
     private Node parseGlobalVar() {
+        String type = currentValue();
         match(TokenType.TYPE); // Expect 'num' or 'text'
-        Node varName = new Node("VarName", currentToken().value); // Store variable name
+        Node varName = nameNode(NodeKind.VAR_NAME); // Store variable name
+        varName.declaredType = type;
         match(TokenType.VNAME); // Expect variable name
         return varName; // Return the variable declaration node
     }
 
     private Node parseAlgo() {
+        if (stackSafe) {
+            return parseAlgoIteratively();
+        }
         List<Node> instrNodes = new ArrayList<>();
-        while (currentToken().type != TokenType.RCURLY && currentToken().type != TokenType.END) { 
-            instrNodes.add(parseInstruction()); // Parse instructions until we reach the end of the program or function
+        while (currentType() != TokenType.RCURLY && currentType() != TokenType.END && currentType() != TokenType.TYPE) { 
+            instrNodes.add(parseInstruction()); // Parse instructions until we reach the functions or the end of the program or function
         }
-        return new Node("Algorithm", instrNodes.toArray(new Node[0])); // Return an Algorithm node
+        return new Node(NodeKind.ALGORITHM, instrNodes.toArray(new Node[0])); // Return an Algorithm node
     }    
 
     private Node parseFunctions() {
         List<Node> functionNodes = new ArrayList<>();
-        while (currentToken().type == TokenType.TYPE) {
-            functionNodes.add(parseFunction());
+        while (currentType() == TokenType.TYPE) {
+            if (functionCache != null && tokens instanceof TokenBuffer.Cursor) {
+                functionNodes.add(parseCachedFunction());
+            } else {
+                functionNodes.add(parseFunction());
+            }
+        }
+        return new Node(NodeKind.FUNCTIONS, functionNodes.toArray(new Node[0]));
+    }
+
+    // Looks the function up by the hash of its tokens, up to the brace that closes its body
+    private Node parseCachedFunction() {
+        TokenBuffer.Cursor cursor = (TokenBuffer.Cursor) tokens;
+        TokenBuffer buffer = cursor.buffer();
+        if (buffer.interner() != functionCache.interner()) {
+            throw new RuntimeException("Function cache was built with a different interner");
+        }
+        int from = cursor.index();
+        int end = from;
+        while (buffer.type(end) != TokenType.LCURLY && buffer.type(end) != TokenType.RCURLY
+                && buffer.type(end) != TokenType.EOF) {
+            end++;
+        }
+        for (int depth = 0; buffer.type(end) != TokenType.EOF; end++) {
+            if (buffer.type(end) == TokenType.LCURLY) {
+                depth++;
+            } else if (buffer.type(end) == TokenType.RCURLY && --depth <= 0) {
+                break;
+            }
+        }
+        if (buffer.type(end) != TokenType.RCURLY) {
+            return parseFunction(); // Malformed; let the parser report where
+        }
+
+        long hash = FunctionCache.hash(buffer, from, end);
+        Node function = functionCache.lookup(hash, buffer, from, end);
+        if (function != null) {
+            cursor.seek(end + 1);
+            return function;
         }
-        return new Node("Functions", functionNodes.toArray(new Node[0]));
+        function = parseFunction();
+        if (cursor.index() == end + 1) {
+            functionCache.store(hash, buffer, from, end, function);
+        }
+        return function;
     }
 
     private Node parseFunction() {
+        String returnType = currentValue();
         match(TokenType.TYPE); // Expect return type (e.g., num)
-        Node funcName = new Node("FunctionName", currentToken().value); // Store function name
+        Node funcName = nameNode(NodeKind.FUNCTION_NAME); // Store function name
         match(TokenType.FNAME); // Expect function name
         match(TokenType.LPAREN); // Expect '('
     
         List<Node> params = new ArrayList<>();
-        while (currentToken().type == TokenType.TYPE) {
-            Node paramType = new Node("ParamType", currentToken().value); // Store parameter type
+        while (currentType() == TokenType.TYPE) {
+            Node paramType = new Node(NodeKind.PARAM_TYPE, currentValue()); // Store parameter type
             match(TokenType.TYPE); // Expect type
-            Node paramName = new Node("ParamName", currentToken().value); // Store parameter name
+            Node paramName = nameNode(NodeKind.PARAM_NAME); // Store parameter name
             match(TokenType.VNAME); // Expect parameter name
             params.add(paramType);
             params.add(paramName);
             
-            if (currentToken().type == TokenType.COMMA) {
+            if (currentType() == TokenType.COMMA) {
                 match(TokenType.COMMA); // Expect ','
             } else {
                 break; // Exit loop if no comma is found
@@ -108,24 +202,120 @@ public class Parser {
     
         match(TokenType.RPAREN); // Expect ')'
         match(TokenType.LCURLY); // Expect '{'
+        if (lazyBodies && tokens instanceof TokenBuffer.Cursor) {
+            Node function = skipFunctionBody(funcName, new Node(NodeKind.PARAMS, params.toArray(new Node[0])));
+            function.declaredType = returnType;
+            return function;
+        }
         
         Node localVars = parseLocalVars(); // Parse local variable declarations
         Node body = parseAlgo(); // Parse function body
     
         match(TokenType.RCURLY); // Expect '}'
-        return new Node("FunctionDeclaration", funcName, new Node("Params", params.toArray(new Node[0])), localVars, body);
+        Node function = new Node(NodeKind.FUNCTION_DECLARATION, funcName, new Node(NodeKind.PARAMS, params.toArray(new Node[0])), localVars, body);
+        function.declaredType = returnType;
+        return function;
     }
     
 
+    // Finds the closing brace of the body by brace matching and leaves the body unparsed
+    private Node skipFunctionBody(Node funcName, Node params) {
+        TokenBuffer.Cursor cursor = (TokenBuffer.Cursor) tokens;
+        TokenBuffer buffer = cursor.buffer();
+        int from = cursor.index();
+        int end = from;
+        for (int depth = 1; ; end++) {
+            TokenType type = buffer.type(end);
+            if (type == TokenType.EOF) {
+                cursor.seek(end);
+                match(TokenType.RCURLY); // Reports the missing '}'
+            } else if (type == TokenType.LCURLY) {
+                depth++;
+            } else if (type == TokenType.RCURLY && --depth == 0) {
+                break;
+            }
+        }
+        cursor.seek(end);
+        match(TokenType.RCURLY); // Expect '}'
+
+        Node function = new Node(NodeKind.FUNCTION_DECLARATION);
+        function.children = new LazyBody(funcName, params, buffer, from, end);
+        return function;
+    }
+
+    // Children of a FunctionDeclaration whose LocalVars and Algorithm are parsed from the
+    // recorded token range [from, end) on first access
+    private class LazyBody extends AbstractList<Node> {
+        private final Node funcName;
+        private final Node params;
+        private TokenBuffer buffer; // Null once the body is parsed
+        private final int from;
+        private final int end;
+        private Node localVars;
+        private Node body;
+
+        LazyBody(Node funcName, Node params, TokenBuffer buffer, int from, int end) {
+            this.funcName = funcName;
+            this.params = params;
+            this.buffer = buffer;
+            this.from = from;
+            this.end = end;
+        }
+
+        @Override
+        public Node get(int index) {
+            switch (index) {
+                case 0:
+                    return funcName;
+                case 1:
+                    return params;
+                case 2:
+                    materialize();
+                    return localVars;
+                case 3:
+                    materialize();
+                    return body;
+                default:
+                    throw new IndexOutOfBoundsException("Index: " + index + ", Size: 4");
+            }
+        }
+
+        @Override
+        public int size() {
+            return 4;
+        }
+
+        private synchronized void materialize() {
+            if (body != null) {
+                return;
+            }
+            TokenBuffer.Cursor cursor = buffer.cursor(from);
+            Parser parser = new Parser(cursor);
+            parser.trace = trace;
+            parser.stackSafe = stackSafe;
+            parser.lazyBodies = lazyBodies;
+            parser.nodeFactory = nodeFactory;
+            Node parsedLocalVars = parser.parseLocalVars();
+            Node parsedBody = parser.parseAlgo();
+            if (cursor.index() != end) {
+                parser.match(TokenType.RCURLY); // Reports what was found instead of the '}'
+                throw new RuntimeException("Function body does not end at its closing brace");
+            }
+            localVars = parsedLocalVars;
+            body = parsedBody;
+            buffer = null;
+        }
+    }
+
     private Node parseLocalVars() {
         List<Node> localVarNodes = new ArrayList<>();
     
         // Expect types followed by variable names, separated by commas, and end with a semicolon
-        while (currentToken().type == TokenType.TYPE) {
+        while (currentType() == TokenType.TYPE) {
             Node varNode = parseLocalVar(); // Parse individual local variable declarations
             localVarNodes.add(varNode);
     
-            if (currentToken().type == TokenType.COMMA) {
+            if (currentType() == TokenType.COMMA) {
                 match(TokenType.COMMA); // Expect ','
             } else {
                 break; // Exit loop if no comma is found
@@ -133,51 +323,119 @@ public class Parser {
         }
     
         match(TokenType.SEMICOLON); // Expect ';' to finish local vars declarations
-        return new Node("LocalVars", localVarNodes.toArray(new Node[0])); // Return node with all local vars
+        return new Node(NodeKind.LOCAL_VARS, localVarNodes.toArray(new Node[0])); // Return node with all local vars
     }
     
     private Node parseLocalVar() {
+        String type = currentValue();
         match(TokenType.TYPE); // Expect 'num' or 'text'
-        Node varName = new Node("VarName", currentToken().value); // Store variable name
+        Node varName = nameNode(NodeKind.VAR_NAME); // Store variable name
+        varName.declaredType = type;
         match(TokenType.VNAME); // Expect variable name
         return varName; // Return the variable declaration node
     }
 
     private Node parseInstruction() {
-        System.out.println("Parsing Instruction. Current Token: " + currentToken().value + " Type: " + currentToken().type); // Debug statement
-        Node command;
-        switch (currentToken().type) {
+        if (trace != null) {
+            trace.ruleEntered("Instruction");
+        }
+        Node command = parseCommand(currentType());
+        match(TokenType.SEMICOLON); // Expect a semicolon after each command
+        if (trace != null) {
+            trace.ruleExited("Instruction");
+        }
+        return command;
+    }
+
+    private Node parseCommand(TokenType type) {
+        switch (type) {
             case SKIP:
-                command = parseSkip();
-                break;
+                return parseSkip();
             case HALT:
-                command = parseHalt();
-                break;
+                return parseHalt();
             case PRINT:
-                command = parsePrint();
-                break;
+                return parsePrint();
             case VNAME:
-                command = parseAssign();
-                break;
+                return parseAssign();
             case IF:
-                command = parseBranch();
-                break;
+                return parseBranch();
             default:
-                throw new RuntimeException("Unexpected command type: " + currentToken().type);
+                throw new RuntimeException("Unexpected command type: " + currentType());
+        }
+    }
+
+    // parseAlgo/parseInstruction/parseBranch as a pushdown automaton. Each open Algorithm
+    // or Branch is a frame on the stack, and a finished block is handed to the frame below.
+    private Node parseAlgoIteratively() {
+        List<BlockFrame> stack = new ArrayList<>();
+        stack.add(new BlockFrame(null));
+        while (true) {
+            BlockFrame frame = stack.get(stack.size() - 1);
+            if (currentType() != TokenType.RCURLY && currentType() != TokenType.END && currentType() != TokenType.TYPE) {
+                if (trace != null) {
+                    trace.ruleEntered("Instruction");
+                }
+                TokenType type = currentType();
+                if (type != TokenType.IF) {
+                    frame.instructions.add(parseCommand(type));
+                    endInstruction();
+                    continue;
+                }
+                match(TokenType.IF);
+                Node condition = parseCondition(); // Parse the condition
+                match(TokenType.THEN); // Expect 'then'
+                stack.add(new BlockFrame(condition));
+                continue;
+            }
+
+            // The block is complete: it is the result, or a then/else block of a branch
+            Node algo = new Node(NodeKind.ALGORITHM, frame.instructions.toArray(new Node[0]));
+            stack.remove(stack.size() - 1);
+            if (frame.condition == null) {
+                return algo;
+            }
+            if (frame.thenBlock == null) {
+                frame.thenBlock = algo;
+                if (currentType() == TokenType.ELSE) {
+                    match(TokenType.ELSE); // Expect 'else'
+                    frame.instructions = new ArrayList<>();
+                    stack.add(frame);
+                    continue;
+                }
+                algo = null;
+            }
+            stack.get(stack.size() - 1).instructions.add(new Node(NodeKind.BRANCH, frame.condition, frame.thenBlock, algo));
+            endInstruction();
         }
+    }
+
+    private void endInstruction() {
         match(TokenType.SEMICOLON); // Expect a semicolon after each command
-        return command;
+        if (trace != null) {
+            trace.ruleExited("Instruction");
+        }
+    }
+
+    // An Algorithm being filled, and for a branch block the branch it belongs to
+    private static class BlockFrame {
+        final Node condition; // Null for the outermost block
+        Node thenBlock;
+        List<Node> instructions = new ArrayList<>();
+
+        BlockFrame(Node condition) {
+            this.condition = condition;
+        }
     }
         
 
     private Node parseSkip() {
         match(TokenType.SKIP);
-        return new Node("Command", "skip");
+        return new Node(NodeKind.COMMAND, "skip");
     }
 
     private Node parseHalt() {
         match(TokenType.HALT);
-        return new Node("Command", "halt");
+        return new Node(NodeKind.COMMAND, "halt");
     }
 
     private Node parsePrint() {
@@ -185,21 +443,21 @@ public class Parser {
         match(TokenType.LPAREN); // Expect '('
         Node atomic = parseAtomic(); // Parse the value to print
         match(TokenType.RPAREN); // Expect ')'
-        return new Node("Print", atomic); // Return a node with the atomic value
+        return new Node(NodeKind.PRINT, atomic); // Return a node with the atomic value
     }
 
     private Node parseAssign() {
-        Node varName = new Node("VName", currentToken().value); // Create a node for the variable name
+        Node varName = nameNode(NodeKind.VNAME); // Create a node for the variable name
         match(TokenType.VNAME); // Expect variable name
     
         match(TokenType.ASSIGN); // Match assignment operator '='
     
-        if (currentToken().type == TokenType.INPUT) { // Check if the assignment is to 'input'
+        if (currentType() == TokenType.INPUT) { // Check if the assignment is to 'input'
             match(TokenType.INPUT); // Match the 'input' keyword
-            return new Node("InputAssign", varName, new Node("Input")); // Return a node indicating input assignment
+            return new Node(NodeKind.INPUT_ASSIGN, varName, new Node(NodeKind.INPUT)); // Return a node indicating input assignment
         } else {
             Node value = parseAtomic(); // Parse the value being assigned
-            return new Node("Assign", varName, value); // Create a standard assignment node with varName and value
+            return new Node(NodeKind.ASSIGN, varName, value); // Create a standard assignment node with varName and value
         }
     }
     
@@ -209,36 +467,39 @@ public class Parser {
         match(TokenType.THEN); // Expect 'then'
         Node thenBlock = parseAlgo(); // Parse the then block
         Node elseBlock = null;
-        if (currentToken().type == TokenType.ELSE) {
+        if (currentType() == TokenType.ELSE) {
             match(TokenType.ELSE); // Expect 'else'
             elseBlock = parseAlgo(); // Parse the else block
         }
-        return new Node("Branch", condition, thenBlock, elseBlock);
+        return new Node(NodeKind.BRANCH, condition, thenBlock, elseBlock);
     }
 
     private Node parseAtomic() {
-        switch (currentToken().type) {
+        if (stackSafe) {
+            return parseAtomicIteratively();
+        }
+        switch (currentType()) {
             case VNAME:
-                Node vnameNode = new Node("VName", currentToken().value);
+                Node vnameNode = share(nameNode(NodeKind.VNAME));
                 match(TokenType.VNAME); // Expect variable name
                 return vnameNode;
             case CONST:
-                Node constNode = new Node("Const", currentToken().value);
+                Node constNode = share(new Node(NodeKind.CONST, currentValue()));
                 match(TokenType.CONST); // Expect constant
                 return constNode;
             case TEXT:
-                Node textNode = new Node("Text", currentToken().value);
+                Node textNode = share(new Node(NodeKind.TEXT, currentValue()));
                 match(TokenType.TEXT); // Expect text constant
                 return textNode;
             case FNAME:
                 return parseFunctionCall(); // Handle FNAME as a function call
             default:
-                throw new RuntimeException("Unexpected atomic type: " + currentToken().type);
+                throw new RuntimeException("Unexpected atomic type: " + currentType());
         }
     }
     
     private Node parseFunctionCall() {
-        Node fnameNode = new Node("FName", currentToken().value);
+        Node fnameNode = share(nameNode(NodeKind.FNAME));
         match(TokenType.FNAME); // Expect function name
     
         match(TokenType.LPAREN); // Expect '('
@@ -249,82 +510,229 @@ public class Parser {
         Node arg3 = parseAtomic(); // Parse the third argument
         match(TokenType.RPAREN); // Expect ')'
     
-        return new Node("FunctionCall", fnameNode, arg1, arg2, arg3); // Return a node representing the function call
+        return share(new Node(NodeKind.FUNCTION_CALL, fnameNode, arg1, arg2, arg3)); // Return a node representing the function call
     }
     
+    // parseAtomic/parseFunctionCall with a stack of calls whose arguments are still being
+    // read. Each slot array holds the FName followed by the three arguments.
+    private Node parseAtomicIteratively() {
+        List<Node[]> calls = null; // Allocated at the first call, as most atomics are leaves
+        int[] filled = null;
+        while (true) {
+            Node value;
+            switch (currentType()) {
+                case VNAME:
+                    value = share(nameNode(NodeKind.VNAME));
+                    match(TokenType.VNAME); // Expect variable name
+                    break;
+                case CONST:
+                    value = share(new Node(NodeKind.CONST, currentValue()));
+                    match(TokenType.CONST); // Expect constant
+                    break;
+                case TEXT:
+                    value = share(new Node(NodeKind.TEXT, currentValue()));
+                    match(TokenType.TEXT); // Expect text constant
+                    break;
+                case FNAME:
+                    Node fnameNode = share(nameNode(NodeKind.FNAME));
+                    match(TokenType.FNAME); // Expect function name
+                    match(TokenType.LPAREN); // Expect '('
+                    if (calls == null) {
+                        calls = new ArrayList<>();
+                        filled = new int[16];
+                    } else if (calls.size() == filled.length) {
+                        filled = Arrays.copyOf(filled, filled.length * 2);
+                    }
+                    filled[calls.size()] = 1;
+                    calls.add(new Node[] { fnameNode, null, null, null });
+                    continue;
+                default:
+                    throw new RuntimeException("Unexpected atomic type: " + currentType());
+            }
+
+            // Hand the value to the innermost open call, closing every call it completes
+            while (true) {
+                int top = calls == null ? -1 : calls.size() - 1;
+                if (top < 0) {
+                    return value;
+                }
+                Node[] call = calls.get(top);
+                call[filled[top]++] = value;
+                if (filled[top] < call.length) {
+                    match(TokenType.COMMA); // Expect ','
+                    break;
+                }
+                match(TokenType.RPAREN); // Expect ')'
+                calls.remove(top);
+                value = share(new Node(NodeKind.FUNCTION_CALL, call));
+            }
+        }
+    }
+
     private Node parseCondition() {
-        if (currentToken().type == TokenType.BINARY || currentToken().type == TokenType.UNARY) {
-            return new Node("Condition", currentToken().value);
+        if (currentType() == TokenType.BINARY || currentType() == TokenType.UNARY) {
+            return new Node(NodeKind.CONDITION, currentValue());
         } else {
-            throw new RuntimeException("Expected a condition, but found: " + currentToken().type);
+            throw new RuntimeException("Expected a condition, but found: " + currentType());
+        }
+    }
+
+    // Leaf for the current VNAME/FNAME, carrying its interned symbol ID when there is one
+    private Node nameNode(NodeKind kind) {
+        Node node = new Node(kind, currentValue());
+        node.symbol = tokens.symbol();
+        return node;
+    }
+
+    private Node share(Node node) {
+        return nodeFactory == null ? node : nodeFactory.intern(node);
+    }
+
+    private TokenType currentType() {
+        TokenType type = tokens.type();
+        if (trace != null) {
+            trace.tokenPeeked(type, tokens.text());
         }
+        return type;
     }
 
-    private Lexer.Token currentToken() {
-        Lexer.Token token = tokens.get(currentTokenIndex);
-        System.out.println("Current Token: " + token.value + " Type: " + token.type); // Debug statement
-        return token;
+    private String currentValue() {
+        currentType();
+        return tokens.text();
     }
 
     private void match(TokenType expectedType) {
-        Lexer.Token token = currentToken();
-        if (token.type == expectedType) {
-            System.out.println("Matched Token: " + token.value + " Type: " + token.type); // Debug statement
-            currentTokenIndex++;
+        TokenType type = currentType();
+        if (type == expectedType) {
+            if (trace != null) {
+                trace.tokenMatched(type, tokens.text());
+            }
+            tokens.advance();
         } else {
-            throw new RuntimeException("Expected token: " + expectedType + ", but found: " + token.type);
+            throw new RuntimeException("Expected token: " + expectedType + ", but found: " + type);
         }
     }
 
     public static class Node {
         String type;
+        NodeKind kind; // Same as type, for switch dispatch
         List<Node> children;
         String value;
+        int symbol = -1; // Interned ID of a name leaf, or -1
+        boolean shared; // Canonical node from a NodeFactory, possibly with several parents
+        String declaredType; // Type of a VarName or return type of a FunctionDeclaration, if kept
 
-        public Node(String type, Node... children) {
-            this.type = type;
+        // Parsers pass the kind itself; the label constructors below are for trees read back
+        // from files, where the label has to be looked up
+        public Node(NodeKind kind, Node... children) {
+            this.type = kind.label();
+            this.kind = kind;
             this.children = Arrays.asList(children);
             this.value = null;
         }
 
-        public Node(String type, String value) {
-            this.type = type;
+        public Node(NodeKind kind, String value) {
+            this.type = kind.label();
+            this.kind = kind;
             this.value = value;
-            this.children = new ArrayList<>();
+            this.children = Collections.emptyList(); // Shared, instead of an empty list per leaf
+        }
+
+        public Node(String type, Node... children) {
+            this(NodeKind.of(type), children);
+        }
+
+        public Node(String type, String value) {
+            this(NodeKind.of(type), value);
+        }
+
+        // Receives the nodes of a subtree in preorder, with exit called once all of a node's
+        // children have been visited. Absent (null) children are skipped.
+        public interface Visitor {
+            // Returning false skips the node's children
+            boolean enter(Node node);
+
+            void exit(Node node);
+        }
+
+        // Walks the subtree with an explicit stack, so deep trees cannot overflow the call stack
+        public void accept(Visitor visitor) {
+            Node[] path = new Node[64];
+            int[] nextChild = new int[64]; // Index of the next child to visit, per node on the path
+            path[0] = this;
+            nextChild[0] = visitor.enter(this) ? 0 : children.size();
+            int top = 1;
+            while (top > 0) {
+                Node node = path[top - 1];
+                if (nextChild[top - 1] == node.children.size()) {
+                    visitor.exit(node);
+                    top--;
+                    continue;
+                }
+                Node child = node.children.get(nextChild[top - 1]++);
+                if (child == null) {
+                    continue;
+                }
+                if (top == path.length) {
+                    path = Arrays.copyOf(path, top * 2);
+                    nextChild = Arrays.copyOf(nextChild, top * 2);
+                }
+                path[top] = child;
+                nextChild[top] = visitor.enter(child) ? 0 : child.children.size();
+                top++;
+            }
         }
 
+        // Same text as the recursive form Node{type='..', value='..', children=[..]}, but built
+        // with an explicit stack so deeply nested trees can be printed
         @Override
         public String toString() {
-            return "Node{" +
-                    "type='" + type + '\'' +
-                    ", value='" + value + '\'' +
-                    ", children=" + children +
-                    '}';
+            StringBuilder out = new StringBuilder();
+            Node[] path = new Node[64];
+            int[] nextChild = new int[64];
+            path[0] = this;
+            int top = 1;
+            open(out, this);
+            while (top > 0) {
+                Node node = path[top - 1];
+                int index = nextChild[top - 1];
+                if (index == node.children.size()) {
+                    out.append("]}");
+                    top--;
+                    continue;
+                }
+                nextChild[top - 1]++;
+                if (index > 0) {
+                    out.append(", ");
+                }
+                Node child = node.children.get(index);
+                if (child == null) {
+                    out.append("null");
+                    continue;
+                }
+                if (top == path.length) {
+                    path = Arrays.copyOf(path, top * 2);
+                    nextChild = Arrays.copyOf(nextChild, top * 2);
+                }
+                path[top] = child;
+                nextChild[top] = 0;
+                top++;
+                open(out, child);
+            }
+            return out.toString();
+        }
+
+        private static void open(StringBuilder out, Node node) {
+            out.append("Node{type='").append(node.type).append("', value='").append(node.value).append("', children=[");
         }
     }
 
     public void writeTreeToXML(Node root, String filename) throws Exception {
-        DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-        DocumentBuilder builder = factory.newDocumentBuilder();
-        Document doc = builder.newDocument();
-
-        Element rootElement = createElementFromNode(doc, root);
-        doc.appendChild(rootElement);
-
-        // Write XML to file
-        Transformer transformer = TransformerFactory.newInstance().newTransformer();
-        transformer.setOutputProperty(OutputKeys.INDENT, "yes");
-        transformer.transform(new DOMSource(doc), new StreamResult(new FileWriter(filename)));
+        writeTreeToXML(root, filename, false);
     }
 
-    private Element createElementFromNode(Document doc, Node node) {
-        Element element = doc.createElement(node.type);
-        if (node.value != null) {
-            element.appendChild(doc.createTextNode(node.value));
-        }
-        for (Node child : node.children) {
-            element.appendChild(createElementFromNode(doc, child));
-        }
-        return element;
+    // Streams the tree to the file, gzip-compressed if asked; see SyntaxTreeXml
+    public void writeTreeToXML(Node root, String filename, boolean gzip) throws Exception {
+        SyntaxTreeXml.write(root, filename, gzip);
     }
 }
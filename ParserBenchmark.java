@@ -0,0 +1,94 @@
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+// Compares the recursive Parser with its stack-safe mode: throughput on ordinary programs,
+// then a single statement whose function call arguments nest a million deep.
+// Run with: java ParserBenchmark [statements] [depth]
+public class ParserBenchmark {
+    private static final int REPEATS = 10;
+
+    public static void main(String[] args) throws IOException {
+        int statements = args.length > 0 ? Integer.parseInt(args[0]) : 50_000;
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 1_000_000;
+
+        TokenBuffer tokens = new Lexer(InterchangeBenchmark.generateProgram(statements)).tokenize();
+        checkSameTree(parse(tokens, false), parse(tokens, true));
+        System.out.println("Trees match (" + tokens.size() + " tokens)");
+        for (int round = 1; round <= 5; round++) {
+            long recursiveNanos = time(tokens, false);
+            long iterativeNanos = time(tokens, true);
+            System.out.printf("Round %d: recursive %.0f tokens/sec, stack-safe %.0f tokens/sec (%.2fx)%n", round,
+                    tokens.size() * 1e9 / recursiveNanos, tokens.size() * 1e9 / iterativeNanos,
+                    (double) recursiveNanos / iterativeNanos);
+        }
+
+        // Deep trees are compared through their binary encoding, which is written without
+        // recursion; toString() would overflow the stack itself
+        TokenBuffer moderate = new Lexer(nestedCalls(2_000)).tokenize();
+        checkSameTree(parse(moderate, false), parse(moderate, true));
+        System.out.println("Trees match at depth 2000");
+
+        TokenBuffer deep = new Lexer(nestedCalls(depth)).tokenize();
+        try {
+            parse(deep, false);
+            System.out.println("Recursive parser handled depth " + depth);
+        } catch (StackOverflowError e) {
+            System.out.println("Recursive parser overflowed the stack at depth " + depth);
+        }
+        long start = System.nanoTime();
+        Parser.Node root = parse(deep, true);
+        long nanos = System.nanoTime() - start;
+        System.out.printf("Stack-safe parser handled depth %d (%d nested calls) in %.1f ms%n", depth,
+                callDepth(root), nanos / 1e6);
+    }
+
+    // main { num V_a; V_a = F_f(F_f(...F_f(V_a, 1, "x")..., 1, "x"), 1, "x"); }
+    static String nestedCalls(int depth) {
+        StringBuilder code = new StringBuilder(depth * 16 + 64).append("main { num V_a; V_a = ");
+        for (int i = 0; i < depth; i++) {
+            code.append("F_f(");
+        }
+        code.append("V_a");
+        for (int i = 0; i < depth; i++) {
+            code.append(", 1, \"x\")");
+        }
+        return code.append("; }").toString();
+    }
+
+    static Parser.Node parse(TokenBuffer tokens, boolean stackSafe) {
+        Parser parser = new Parser(tokens);
+        parser.setStackSafe(stackSafe);
+        return parser.parse();
+    }
+
+    // Average over a few parses, as a single one is too short to time reliably
+    static long time(TokenBuffer tokens, boolean stackSafe) {
+        long start = System.nanoTime();
+        for (int i = 0; i < REPEATS; i++) {
+            parse(tokens, stackSafe);
+        }
+        return (System.nanoTime() - start) / REPEATS;
+    }
+
+    static void checkSameTree(Parser.Node expected, Parser.Node actual) throws IOException {
+        ByteArrayOutputStream a = new ByteArrayOutputStream();
+        ByteArrayOutputStream b = new ByteArrayOutputStream();
+        BinaryFormat.writeTree(expected, a);
+        BinaryFormat.writeTree(actual, b);
+        if (!Arrays.equals(a.toByteArray(), b.toByteArray())) {
+            throw new RuntimeException("Stack-safe parser built a different tree");
+        }
+    }
+
+    // Follows the first argument of each call down to the innermost one
+    static int callDepth(Parser.Node root) {
+        Parser.Node node = root.children.get(1).children.get(0).children.get(1);
+        int count = 0;
+        while (node.kind == NodeKind.FUNCTION_CALL) {
+            node = node.children.get(1);
+            count++;
+        }
+        return count;
+    }
+}
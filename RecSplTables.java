@@ -0,0 +1,169 @@
+// Generated by GrammarCompiler from recspl.grammar. Do not edit; regenerate with:
+//   java GrammarCompiler recspl.grammar RecSplTables.java
+public class RecSplTables {
+    static final int TOKEN_TYPES = 34;
+    static final int START = 0;
+
+    static final String[] RULES = {
+        "program",
+        "globalVars",
+        "globalDecls",
+        "globalTail",
+        "globalMore",
+        "algo",
+        "instructions",
+        "instruction",
+        "assignment",
+        "elseBlock",
+        "condition",
+        "atomic",
+        "functions",
+        "functionList",
+        "function",
+        "params",
+        "paramList",
+        "paramTail",
+        "paramMore",
+        "localVars",
+        "localDecls",
+        "localTail",
+        "localMore",
+    };
+
+    // Symbols of production p are PRODUCTIONS[PRODUCTION_STARTS[p] .. PRODUCTION_STARTS[p + 1])
+    static final int[] PRODUCTION_STARTS = {
+        0, 7, 10, 14, 14, 16, 17, 21, 21, 24, 27, 27, 28, 29, 34, 37, 43, 46, 48, 50, 51, 52, 53, 54,
+        55, 56, 65, 68, 70, 70, 81, 84, 87, 87, 89, 89, 92, 92, 96, 100, 100, 102, 102, 106, 106,
+    };
+
+    static final int[] PRODUCTIONS = {
+        // 0: program : MAIN LCURLY globalVars algo functions RCURLY @Program/3
+        11, 31, 257, 261, 268, 32, 0x44000401,
+        // 1: globalVars : < globalDecls @GlobalVars
+        0x40000000, 258, 0x44000002,
+        // 2: globalDecls : =TYPE VarName:VNAME ^ globalTail
+        0x54000c00, 0x50000003, 0x58000000, 259,
+        // 3: globalDecls :
+        // 4: globalTail : COMMA globalMore
+        30, 260,
+        // 5: globalTail : SEMICOLON
+        29,
+        // 6: globalMore : =TYPE VarName:VNAME ^ globalTail
+        0x54000c00, 0x50000003, 0x58000000, 259,
+        // 7: globalMore :
+        // 8: algo : < instructions @Algorithm
+        0x40000000, 262, 0x44000004,
+        // 9: instructions : instruction SEMICOLON instructions
+        263, 29, 262,
+        // 10: instructions :
+        // 11: instruction : Command:SKIP
+        0x50000d0c,
+        // 12: instruction : Command:HALT
+        0x5000080c,
+        // 13: instruction : PRINT LPAREN atomic RPAREN @Print/1
+        7, 27, 267, 28, 0x4400020d,
+        // 14: instruction : VName:VNAME ASSIGN assignment
+        0x50000013, 17, 264,
+        // 15: instruction : IF condition THEN algo elseBlock @Branch/3
+        4, 266, 5, 261, 265, 0x44000411,
+        // 16: assignment : INPUT +Input @InputAssign/2
+        16, 0x48000010, 0x4400030f,
+        // 17: assignment : atomic @Assign/2
+        267, 0x4400030e,
+        // 18: elseBlock : ELSE algo
+        6, 261,
+        // 19: elseBlock : ~
+        0x4c000000,
+        // 20: condition : Condition:BINARY
+        0x50001912,
+        // 21: condition : Condition:UNARY
+        0x50001812,
+        // 22: atomic : VName:VNAME
+        0x50000013,
+        // 23: atomic : Const:CONST
+        0x50000216,
+        // 24: atomic : Text:TEXT
+        0x50000317,
+        // 25: atomic : FName:FNAME LPAREN atomic COMMA atomic COMMA atomic RPAREN @FunctionCall/4
+        0x50000114, 27, 267, 30, 267, 30, 267, 28, 0x44000515,
+        // 26: functions : < functionList @Functions
+        0x40000000, 269, 0x44000005,
+        // 27: functionList : function functionList
+        270, 269,
+        // 28: functionList :
+        // 29: function : =TYPE FunctionName:FNAME LPAREN params RPAREN LCURLY localVars algo RCURLY @FunctionDeclaration/4 ^
+        0x54000c00, 0x50000107, 27, 271, 28, 31, 275, 261, 32, 0x44000506, 0x58000000,
+        // 30: params : < paramList @Params
+        0x40000000, 272, 0x44000008,
+        // 31: paramList : ParamType:TYPE ParamName:VNAME paramTail
+        0x50000c09, 0x5000000a, 273,
+        // 32: paramList :
+        // 33: paramTail : COMMA paramMore
+        30, 274,
+        // 34: paramTail :
+        // 35: paramMore : ParamType:TYPE ParamName:VNAME paramTail
+        0x50000c09, 0x5000000a, 273,
+        // 36: paramMore :
+        // 37: localVars : < localDecls SEMICOLON @LocalVars
+        0x40000000, 276, 29, 0x4400000b,
+        // 38: localDecls : =TYPE VarName:VNAME ^ localTail
+        0x54000c00, 0x50000003, 0x58000000, 277,
+        // 39: localDecls :
+        // 40: localTail : COMMA localMore
+        30, 278,
+        // 41: localTail :
+        // 42: localMore : =TYPE VarName:VNAME ^ localTail
+        0x54000c00, 0x50000003, 0x58000000, 277,
+        // 43: localMore :
+    };
+
+    // Production for rule r on token type t is TABLE[r * TOKEN_TYPES + t], or -1
+    static final short[] TABLE = {
+        // program
+        -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 0, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+        // globalVars
+        1, -1, -1, -1, 1, -1, -1, 1, 1, -1, -1, -1, 1, 1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 1, -1,
+        // globalDecls
+        3, -1, -1, -1, 3, -1, -1, 3, 3, -1, -1, -1, 2, 3, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 3, -1,
+        // globalTail
+        -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 5, 4, -1, -1, -1,
+        // globalMore
+        7, -1, -1, -1, 7, -1, -1, 7, 7, -1, -1, -1, 6, 7, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 7, -1,
+        // algo
+        8, -1, -1, -1, 8, -1, 8, 8, 8, -1, -1, -1, 8, 8, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 8, -1, -1, 8, -1,
+        // instructions
+        9, -1, -1, -1, 9, -1, 10, 9, 9, -1, -1, -1, 10, 9, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 10, -1, -1, 10, -1,
+        // instruction
+        14, -1, -1, -1, 15, -1, -1, 13, 12, -1, -1, -1, -1, 11, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+        // assignment
+        17, 17, 17, 17, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 16, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+        // elseBlock
+        -1, -1, -1, -1, -1, -1, 18, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 19, -1, -1, -1, -1,
+        // condition
+        -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 21, 20, -1, -1, -1, -1, -1, -1, -1, -1,
+        // atomic
+        22, 25, 23, 24, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+        // functions
+        -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 26, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 26, -1,
+        // functionList
+        -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 27, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 28, -1,
+        // function
+        -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 29, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1,
+        // params
+        -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 30, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 30, -1, -1, -1, -1, -1,
+        // paramList
+        -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 31, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 32, -1, -1, -1, -1, -1,
+        // paramTail
+        -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 34, -1, 33, -1, -1, -1,
+        // paramMore
+        -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 35, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 36, -1, -1, -1, -1, -1,
+        // localVars
+        -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 37, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 37, -1, -1, -1, -1,
+        // localDecls
+        -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 38, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 39, -1, -1, -1, -1,
+        // localTail
+        -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 41, 40, -1, -1, -1,
+        // localMore
+        -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 42, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, -1, 43, -1, -1, -1, -1,
+    };
+}
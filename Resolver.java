@@ -0,0 +1,238 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+// Resolves every variable in one pass over the tree. Each declaration (a global VarName, a
+// ParamName or a function's local VarName) gets a (depth, slot) pair: depth GLOBAL with
+// slots numbered over the globals, or depth LOCAL with slots numbered over the enclosing
+// function's parameters and then its locals. RecSPL has no block scopes inside a function,
+// so every occurrence of a name in one function has the same binding. The bindings are
+// kept per function in a Scope, and later phases ask scope(function).slot(node) instead of
+// searching a stack of scopes by name. A Scope indexes its slots directly by symbol, over
+// just the range of symbols its own parameters and locals were interned to, so a lookup
+// is one array read.
+//
+// Bindings are kept outside the tree, so hash-consed trees, whose VName leaves may be
+// shared between functions, resolve like any other. Names are looked up by interned
+// symbol, so the interner must be the one the tree's names were interned with.
+public class Resolver {
+    public static final int GLOBAL = 0;
+    public static final int LOCAL = 1;
+
+    private final Interner interner;
+    private CompilerTraceListener trace; // Null unless tracing was asked for
+    private int[] globalSlots = new int[64]; // Slot + 1 by symbol, 0 when not declared
+    private int[] localSlots = new int[64]; // Same, for the function being resolved
+    private int[] localSymbols = new int[16]; // Declared in the current function, in slot order
+    private int globalCount;
+    private int localCount;
+    private final Map<Parser.Node, Scope> scopes = new IdentityHashMap<>();
+    private final List<String> diagnostics = new ArrayList<>();
+
+    public Resolver(Interner interner) {
+        this.interner = interner != null ? interner : new Interner();
+    }
+
+    public void setTraceListener(CompilerTraceListener trace) {
+        this.trace = trace;
+    }
+
+    public void resolve(Parser.Node program) {
+        for (Parser.Node section : program.children) {
+            if (section == null) {
+                continue;
+            }
+            switch (section.kind) {
+                case GLOBAL_VARS:
+                    for (Parser.Node var : section.children) {
+                        declareGlobal(var);
+                    }
+                    break;
+                case ALGORITHM:
+                    scopes.put(section, newScope());
+                    resolveUses(section);
+                    break;
+                case FUNCTIONS:
+                    for (Parser.Node function : section.children) {
+                        resolveFunction(function);
+                    }
+                    break;
+                default:
+                    break;
+            }
+        }
+    }
+
+    // Bindings of the given unit, which is the program's main Algorithm node or one of its
+    // FunctionDeclarations, or null if the unit has not been resolved
+    public Scope scope(Parser.Node unit) {
+        return scopes.get(unit);
+    }
+
+    private void resolveFunction(Parser.Node function) {
+        visit(function);
+        // Children are FunctionName, Params (ParamType/ParamName pairs), LocalVars, Algorithm
+        for (Parser.Node param : function.children.get(1).children) {
+            if (param.kind == NodeKind.PARAM_NAME) {
+                declareLocal(param);
+            }
+        }
+        for (Parser.Node var : function.children.get(2).children) {
+            declareLocal(var);
+        }
+        scopes.put(function, newScope());
+        resolveUses(function.children.get(3));
+
+        for (int i = 0; i < localCount; i++) {
+            localSlots[localSymbols[i]] = 0;
+        }
+        localCount = 0;
+    }
+
+    // Scope of the locals declared so far in the current function
+    private Scope newScope() {
+        int low = Integer.MAX_VALUE;
+        int high = -1;
+        for (int i = 0; i < localCount; i++) {
+            low = Math.min(low, localSymbols[i]);
+            high = Math.max(high, localSymbols[i]);
+        }
+        if (localCount == 0) {
+            return new Scope(0, new int[0], 0);
+        }
+        int[] slots = new int[high - low + 1];
+        for (int i = 0; i < localCount; i++) {
+            slots[localSymbols[i] - low] = i + 1;
+        }
+        return new Scope(low, slots, localCount);
+    }
+
+    private void declareGlobal(Parser.Node declaration) {
+        visit(declaration);
+        int symbol = intern(declaration);
+        if (globalSlots[symbol] != 0) {
+            diagnostics.add("Global variable '" + declaration.value + "' is already declared.");
+            return;
+        }
+        globalSlots[symbol] = ++globalCount;
+    }
+
+    private void declareLocal(Parser.Node declaration) {
+        visit(declaration);
+        int symbol = intern(declaration);
+        if (localSlots[symbol] != 0) {
+            diagnostics.add("Variable '" + declaration.value + "' is already declared in this local scope.");
+            return;
+        }
+        if (localCount == localSymbols.length) {
+            localSymbols = Arrays.copyOf(localSymbols, localCount * 2);
+        }
+        localSymbols[localCount++] = symbol;
+        localSlots[symbol] = localCount;
+    }
+
+    // Reports the VName uses below root that have no declaration, walking with an explicit
+    // stack since call arguments and branches can nest very deeply
+    private void resolveUses(Parser.Node root) {
+        Parser.Node[] stack = new Parser.Node[64];
+        stack[0] = root;
+        int top = 1;
+        while (top > 0) {
+            Parser.Node node = stack[--top];
+            if (node == null) {
+                continue;
+            }
+            visit(node);
+            if (node.kind == NodeKind.VNAME) {
+                int symbol = intern(node);
+                if (localSlots[symbol] == 0 && globalSlots[symbol] == 0) {
+                    diagnostics.add("Variable '" + node.value + "' not declared.");
+                }
+                continue;
+            }
+            int count = node.children.size();
+            if (top + count > stack.length) {
+                stack = Arrays.copyOf(stack, Math.max(stack.length * 2, top + count));
+            }
+            for (int i = count - 1; i >= 0; i--) {
+                stack[top++] = node.children.get(i);
+            }
+        }
+    }
+
+    private int intern(Parser.Node name) {
+        int symbol = name.symbol >= 0 ? name.symbol : interner.intern(name.value);
+        if (symbol >= globalSlots.length) {
+            int capacity = Math.max(globalSlots.length * 2, symbol + 1);
+            globalSlots = Arrays.copyOf(globalSlots, capacity);
+            localSlots = Arrays.copyOf(localSlots, capacity);
+        }
+        return symbol;
+    }
+
+    private void visit(Parser.Node node) {
+        if (trace != null) {
+            trace.nodeVisited("resolve", node);
+        }
+    }
+
+    public int globalCount() {
+        return globalCount;
+    }
+
+    // Undeclared uses and duplicate declarations, in tree order
+    public List<String> diagnostics() {
+        return Collections.unmodifiableList(diagnostics);
+    }
+
+    // Bindings of the main algorithm or of one function: its parameters and locals, with
+    // the globals behind them
+    public final class Scope {
+        private final int base; // Symbol of slots[0]
+        private final int[] slots; // Slot + 1 by symbol - base, 0 when not a local here
+        private final int localCount;
+
+        private Scope(int base, int[] slots, int localCount) {
+            this.base = base;
+            this.slots = slots;
+            this.localCount = localCount;
+        }
+
+        // GLOBAL or LOCAL for a declared variable name, or -1 if it has no declaration
+        public int depth(Parser.Node name) {
+            int symbol = symbol(name);
+            if (localSlot(symbol) >= 0) {
+                return LOCAL;
+            }
+            return globalSlot(symbol) >= 0 ? GLOBAL : -1;
+        }
+
+        // Index of the variable within its depth, or -1 if it has no declaration
+        public int slot(Parser.Node name) {
+            int symbol = symbol(name);
+            int local = localSlot(symbol);
+            return local >= 0 ? local : globalSlot(symbol);
+        }
+
+        // Parameters and locals, which take the LOCAL slots below this
+        public int localCount() {
+            return localCount;
+        }
+
+        private int localSlot(int symbol) {
+            int index = symbol - base;
+            return index >= 0 && index < slots.length ? slots[index] - 1 : -1;
+        }
+
+        private int globalSlot(int symbol) {
+            return symbol >= 0 && symbol < globalSlots.length ? globalSlots[symbol] - 1 : -1;
+        }
+
+        private int symbol(Parser.Node name) {
+            return name.symbol >= 0 ? name.symbol : interner.lookup(name.value);
+        }
+    }
+}
@@ -5,11 +5,18 @@ public class ScopeAnalyzer {
     private Map<String, String> globalTypes = new HashMap<>();
     private Map<String, Map<String, String>> functionParams = new HashMap<>();
     private Set<String> functionNames = new HashSet<>();
-    private Stack<Map<String, String>> scopeStack = new Stack<>();
+    private final Interner interner;
+    private final SymbolTable scopes = new SymbolTable(); // Scope 0 is the global scope
 
     public ScopeAnalyzer() {
+        this(new Interner());
+    }
+
+    // Names are looked up by their IDs in the given interner
+    public ScopeAnalyzer(Interner interner) {
+        this.interner = interner;
         // Initialize with the global scope
-        scopeStack.push(new HashMap<>());
+        scopes.enterScope();
     }
 
     // Declare a global variable with its type
@@ -25,15 +32,23 @@ public class ScopeAnalyzer {
 
     // Declare a local variable within the current scope
     public void declareVariable(String name, String type) {
-        Map<String, String> currentScope = scopeStack.peek();
-        if (currentScope.containsKey(name)) {
+        declareVariable(interner.intern(name), type);
+    }
+
+    public void declareVariable(int symbol, String type) {
+        String name = interner.name(symbol);
+        if (scopes.scopes() == 0) {
+            throw new RuntimeException("No scope to declare variable '" + name + "' in.");
+        }
+        int depth = scopes.depth(symbol);
+        if (depth == scopes.scopes() - 1) {
             log("Variable '" + name + "' is already declared in this local scope.");
             return;
         }
         if (globalVariables.contains(name)) {
             log("Variable '" + name + "' shadows a global variable.");
         }
-        currentScope.put(name, type);
+        scopes.declare(symbol, type);
         log("Declared local variable: " + name + " of type " + type);
     }
 
@@ -52,25 +67,33 @@ public class ScopeAnalyzer {
     }
     // Enter a new scope
     public void enterScope() {
-        scopeStack.push(new HashMap<>());
+        scopes.enterScope();
         log("Entered new scope.");
     }
 
     // Exit the current scope
     public void exitScope() {
-        if (!scopeStack.isEmpty()) {
-            scopeStack.pop();
+        if (scopes.exitScope()) {
             log("Exited scope.");
         }
     }
 
-    // Recursively find a variable across all scopes
+    // Find a variable in the innermost scope that declares it
     public boolean findVariable(String name) {
-        for (int i = scopeStack.size() - 1; i >= 0; i--) {
-            if (scopeStack.get(i).containsKey(name)) {
-                log("Found variable '" + name + "' in " + (i == 0 ? "global" : "local") + " scope.");
-                return true;
-            }
+        int symbol = interner.lookup(name);
+        if (symbol < 0) {
+            log("Variable '" + name + "' not declared.");
+            return false;
+        }
+        return findVariable(symbol);
+    }
+
+    public boolean findVariable(int symbol) {
+        String name = interner.name(symbol);
+        int depth = scopes.depth(symbol);
+        if (depth >= 0) {
+            log("Found variable '" + name + "' in " + (depth == 0 ? "global" : "local") + " scope.");
+            return true;
         }
         log("Variable '" + name + "' not declared.");
         return false;
@@ -142,6 +165,51 @@ public class ScopeAnalyzer {
         }
         System.out.println("------");  // Ensures a separator at the end
     }
+
+    // Analyze the parsed tree directly: declares the globals and functions and opens a scope
+    // per function body, like analyzeAST(String) on the tree's marker form, without
+    // building or splitting any strings
+    public void analyzeAST(Parser.Node program) {
+        try {
+            program.accept(new Parser.Node.Visitor() {
+                @Override
+                public boolean enter(Parser.Node node) {
+                    switch (node.kind) {
+                        case PROGRAM:
+                        case FUNCTIONS:
+                            return true;
+                        case GLOBAL_VARS:
+                            for (Parser.Node var : node.children) {
+                                declareGlobalVariable(var.value, var.declaredType);
+                            }
+                            return false;
+                        case FUNCTION_DECLARATION:
+                            List<Parser.Node> params = node.children.get(1).children;
+                            String[] parameters = new String[params.size() / 2];
+                            for (int i = 1; i < params.size(); i += 2) {
+                                parameters[i / 2] = params.get(i).value; // ParamType/ParamName pairs
+                            }
+                            declareFunction(node.children.get(0).value, node.declaredType, parameters);
+                            enterScope();
+                            return false;
+                        default:
+                            return false;
+                    }
+                }
+
+                @Override
+                public void exit(Parser.Node node) {
+                    if (node.kind == NodeKind.FUNCTION_DECLARATION) {
+                        exitScope();
+                    }
+                }
+            });
+        } catch (RuntimeException e) {
+            System.err.println("Error: " + e.getMessage());
+        }
+        System.out.println("------");
+    }
+
     /**
      * Recursively traverse the AST tokens and handle declarations and scopes.
      */
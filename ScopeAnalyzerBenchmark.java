@@ -0,0 +1,79 @@
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+// ScopeAnalyzer on a parsed library: the string path, which flattens the tree to its marker
+// form and has analyzeAST split it back into words, against analyzeAST walking the tree.
+// The analyzer's logging goes to a discarded stream while timing.
+// Run with: java ScopeAnalyzerBenchmark [functions] [statements per function]
+public class ScopeAnalyzerBenchmark {
+    private static final int REPEATS = 10;
+
+    public static void main(String[] args) {
+        int functions = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int statements = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        Parser.Node ast = new Parser(new Lexer(LazyBodyBenchmark.generateLibrary(functions, statements))).parse();
+
+        String fromString = capture(() -> new ScopeAnalyzer().analyzeAST(markers(ast)));
+        String fromTree = capture(() -> new ScopeAnalyzer().analyzeAST(ast));
+        // The string path also echoes its input, as two lines ahead of the log
+        fromString = fromString.substring(fromString.indexOf('\n', fromString.indexOf('\n') + 1) + 1);
+        if (!fromString.equals(fromTree)) {
+            throw new RuntimeException("Tree walk logged different declarations");
+        }
+        System.out.println("Logs match (" + functions + " functions)");
+
+        PrintStream console = System.out;
+        for (int round = 1; round <= 5; round++) {
+            System.setOut(new PrintStream(PrintStream.nullOutputStream()));
+            long start = System.nanoTime();
+            for (int i = 0; i < REPEATS; i++) {
+                new ScopeAnalyzer().analyzeAST(markers(ast));
+            }
+            long stringNanos = (System.nanoTime() - start) / REPEATS;
+
+            start = System.nanoTime();
+            for (int i = 0; i < REPEATS; i++) {
+                new ScopeAnalyzer().analyzeAST(ast);
+            }
+            long treeNanos = (System.nanoTime() - start) / REPEATS;
+            System.setOut(console);
+            System.out.printf("Round %d: string %.1f ms, tree %.1f ms%n", round, stringNanos / 1e6, treeNanos / 1e6);
+        }
+    }
+
+    // The marker form analyzeAST(String) reads: "GlobalVars type name ... EndGlobalVars",
+    // then per function "Function type name params BeginScope locals EndScope"
+    static String markers(Parser.Node program) {
+        StringBuilder out = new StringBuilder("GlobalVars");
+        for (Parser.Node var : program.children.get(0).children) {
+            out.append(' ').append(var.declaredType).append(' ').append(var.value);
+        }
+        out.append(" EndGlobalVars");
+        for (Parser.Node function : program.children.get(2).children) {
+            out.append(" Function ").append(function.declaredType).append(' ').append(function.children.get(0).value);
+            for (Parser.Node param : function.children.get(1).children) {
+                if (param.kind == NodeKind.PARAM_NAME) {
+                    out.append(' ').append(param.value);
+                }
+            }
+            out.append(" BeginScope");
+            for (Parser.Node var : function.children.get(2).children) {
+                out.append(' ').append(var.value).append(' ').append(var.declaredType);
+            }
+            out.append(" EndScope");
+        }
+        return out.toString();
+    }
+
+    private static String capture(Runnable analysis) {
+        PrintStream console = System.out;
+        ByteArrayOutputStream log = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(log));
+        try {
+            analysis.run();
+        } finally {
+            System.setOut(console);
+        }
+        return log.toString();
+    }
+}
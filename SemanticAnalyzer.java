@@ -0,0 +1,236 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+// Type checks of a whole program in two phases, over the bindings of a Resolver. A
+// sequential pass collects the global variable types and function signatures into an
+// immutable GlobalEnvironment. Then the main algorithm and each FunctionDeclaration are
+// checked as separate tasks on a ForkJoinPool. Each task reads variable bindings from the
+// Resolver's Scope for its unit and keeps its locals' types in an array by slot. The
+// Resolver has already parsed any lazy function bodies on the calling thread, so the
+// tasks never run the parser or touch its NodeFactory or trace listener. The tasks do not
+// write to the tree, the interner or the Resolver, and their diagnostics are merged in
+// declaration order, so the result is the same for any number of threads.
+public class SemanticAnalyzer {
+    private final Interner interner;
+
+    // The interner must be the one the tree's names were interned with, and nothing else
+    // may intern names into it while analyze runs
+    public SemanticAnalyzer(Interner interner) {
+        this.interner = interner != null ? interner : new Interner();
+    }
+
+    // Resolves the program with a new Resolver, then returns its scope errors followed by
+    // the type and signature errors
+    public List<String> analyze(Parser.Node program, ForkJoinPool pool) {
+        Resolver resolver = new Resolver(interner);
+        resolver.resolve(program);
+        List<String> diagnostics = new ArrayList<>(resolver.diagnostics());
+        diagnostics.addAll(analyze(program, resolver, pool));
+        return diagnostics;
+    }
+
+    // Type and signature errors of a program the resolver has resolved with this analyzer's
+    // interner. Undeclared and duplicate variables are left to the resolver's diagnostics.
+    public List<String> analyze(Parser.Node program, Resolver resolver, ForkJoinPool pool) {
+        List<String> diagnostics = new ArrayList<>();
+        GlobalEnvironment environment = collectSignatures(program, resolver, diagnostics);
+
+        List<ForkJoinTask<Unit>> tasks = new ArrayList<>();
+        Parser.Node algorithm = program.children.get(1);
+        Resolver.Scope mainScope = scope(resolver, algorithm);
+        tasks.add(pool.submit(() -> Unit.check(environment, interner, mainScope, null, algorithm)));
+        for (Parser.Node function : program.children.get(2).children) {
+            Resolver.Scope scope = scope(resolver, function);
+            tasks.add(pool.submit(() -> Unit.check(environment, interner, scope, function, null)));
+        }
+        // As in ParallelLexer, the first error in declaration order is rethrown as is
+        for (ForkJoinTask<Unit> task : tasks) {
+            Unit unit = task.join();
+            if (unit.error != null) {
+                throw unit.error;
+            }
+            diagnostics.addAll(unit.diagnostics);
+        }
+        return diagnostics;
+    }
+
+    // Phase one, on the calling thread. Every function name is interned here, so the
+    // tasks only ever look names up.
+    private GlobalEnvironment collectSignatures(Parser.Node program, Resolver resolver, List<String> diagnostics) {
+        Resolver.Scope mainScope = scope(resolver, program.children.get(1));
+        for (Parser.Node function : program.children.get(2).children) {
+            intern(function.children.get(0));
+        }
+
+        // A duplicate keeps the slot of the first declaration, so each slot is taken in order
+        String[] globalTypes = new String[resolver.globalCount()];
+        int next = 0;
+        for (Parser.Node var : program.children.get(0).children) {
+            if (mainScope.slot(var) == next) {
+                globalTypes[next++] = var.declaredType;
+            }
+        }
+
+        int limit = interner.size();
+        String[] returnTypes = new String[limit];
+        String[][] paramTypes = new String[limit][];
+        for (Parser.Node function : program.children.get(2).children) {
+            Parser.Node name = function.children.get(0);
+            int symbol = intern(name);
+            if (paramTypes[symbol] != null) {
+                diagnostics.add("Function '" + name.value + "' is already declared.");
+                continue;
+            }
+            List<Parser.Node> params = function.children.get(1).children;
+            String[] types = new String[params.size() / 2];
+            for (int i = 0; i < types.length; i++) {
+                types[i] = params.get(2 * i).value; // ParamType/ParamName pairs
+            }
+            paramTypes[symbol] = types;
+            returnTypes[symbol] = function.declaredType;
+        }
+        return new GlobalEnvironment(globalTypes, returnTypes, paramTypes);
+    }
+
+    private static Resolver.Scope scope(Resolver resolver, Parser.Node unit) {
+        Resolver.Scope scope = resolver.scope(unit);
+        if (scope == null) {
+            throw new RuntimeException("Program was not resolved by the given Resolver");
+        }
+        return scope;
+    }
+
+    private int intern(Parser.Node name) {
+        return name.symbol >= 0 ? name.symbol : interner.intern(name.value);
+    }
+
+    // Checks of the main algorithm or of one function, confined to the task's thread. The
+    // result carries the task's diagnostics, or the error that stopped it because
+    // ForkJoinTask.join would wrap it.
+    private static class Unit implements Parser.Node.Visitor {
+        private final GlobalEnvironment environment;
+        private final Interner interner;
+        private final Resolver.Scope scope;
+        private final String[] localTypes; // By LOCAL slot, null when the tree did not keep the type
+        final List<String> diagnostics = new ArrayList<>();
+        RuntimeException error;
+
+        private Unit(GlobalEnvironment environment, Interner interner, Resolver.Scope scope) {
+            this.environment = environment;
+            this.interner = interner;
+            this.scope = scope;
+            this.localTypes = new String[scope.localCount()];
+        }
+
+        static Unit check(GlobalEnvironment environment, Interner interner, Resolver.Scope scope,
+                Parser.Node function, Parser.Node algorithm) {
+            Unit unit = new Unit(environment, interner, scope);
+            try {
+                if (function != null) {
+                    // Parameters and then locals take the LOCAL slots in order
+                    int next = 0;
+                    List<Parser.Node> params = function.children.get(1).children;
+                    for (int i = 1; i < params.size(); i += 2) {
+                        next = unit.declare(params.get(i), params.get(i - 1).value, next);
+                    }
+                    for (Parser.Node var : function.children.get(2).children) {
+                        next = unit.declare(var, var.declaredType, next);
+                    }
+                    algorithm = function.children.get(3);
+                }
+                algorithm.accept(unit);
+            } catch (RuntimeException e) {
+                unit.error = e;
+            }
+            return unit;
+        }
+
+        // Records the type of a declaration that took the next slot. A duplicate keeps the
+        // slot, and so the type, of the first declaration.
+        private int declare(Parser.Node var, String type, int next) {
+            if (scope.slot(var) != next) {
+                return next;
+            }
+            localTypes[next] = type;
+            return next + 1;
+        }
+
+        @Override
+        public boolean enter(Parser.Node node) {
+            switch (node.kind) {
+                case ASSIGN:
+                case INPUT_ASSIGN:
+                    Parser.Node target = node.children.get(0);
+                    String declaredType = typeOf(target);
+                    String valueType = node.kind == NodeKind.INPUT_ASSIGN ? "num" : typeOf(node.children.get(1));
+                    if (declaredType != null && valueType != null && !declaredType.equals(valueType)) {
+                        diagnostics.add("Type error: Cannot assign " + valueType + " to " + target.value + " of type "
+                                + declaredType);
+                    }
+                    return true;
+                case FUNCTION_CALL:
+                    checkCall(node);
+                    return true;
+                default:
+                    return true;
+            }
+        }
+
+        @Override
+        public void exit(Parser.Node node) {
+        }
+
+        private void checkCall(Parser.Node call) {
+            Parser.Node name = call.children.get(0);
+            int symbol = symbol(name);
+            if (!environment.isFunction(symbol)) {
+                diagnostics.add("Function '" + name.value + "' is not declared.");
+                return;
+            }
+            int arguments = call.children.size() - 1;
+            if (environment.paramCount(symbol) != arguments) {
+                diagnostics.add("Function '" + name.value + "' expects " + environment.paramCount(symbol)
+                        + " arguments but got " + arguments + ".");
+                return;
+            }
+            for (int i = 0; i < arguments; i++) {
+                String expected = environment.paramType(symbol, i);
+                String actual = typeOf(call.children.get(i + 1));
+                if (expected != null && actual != null && !expected.equals(actual)) {
+                    diagnostics.add("Type error: Argument " + (i + 1) + " of function '" + name.value
+                            + "' expects type " + expected + " but got " + actual + ".");
+                }
+            }
+        }
+
+        // Type of an atomic value, or null if it is unknown (undeclared, or not kept in the tree)
+        private String typeOf(Parser.Node atomic) {
+            switch (atomic.kind) {
+                case CONST:
+                    return "num";
+                case TEXT:
+                    return "text";
+                case VNAME:
+                    switch (scope.depth(atomic)) {
+                        case Resolver.LOCAL:
+                            return localTypes[scope.slot(atomic)];
+                        case Resolver.GLOBAL:
+                            return environment.globalType(scope.slot(atomic));
+                        default:
+                            return null;
+                    }
+                case FUNCTION_CALL:
+                    return environment.returnType(symbol(atomic.children.get(0)));
+                default:
+                    return null;
+            }
+        }
+
+        // Symbol of a function name without interning, or -1 if it was never interned
+        private int symbol(Parser.Node name) {
+            return name.symbol >= 0 ? name.symbol : interner.lookup(name.value);
+        }
+    }
+}
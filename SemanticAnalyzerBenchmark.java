@@ -0,0 +1,70 @@
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+
+// Scaling benchmark for SemanticAnalyzer on a well-typed library of many functions, from
+// one core up to all available cores. The library must check without diagnostics, and
+// every thread count must report the same ones as a single thread.
+// Run with: java SemanticAnalyzerBenchmark [functions] [statements per function]
+public class SemanticAnalyzerBenchmark {
+
+    public static void main(String[] args) {
+        int functions = args.length > 0 ? Integer.parseInt(args[0]) : 20_000;
+        int statements = args.length > 1 ? Integer.parseInt(args[1]) : 40;
+        Interner interner = new Interner();
+        Parser.Node ast = new Parser(new Lexer(generateLibrary(functions, statements), interner)).parse();
+
+        ForkJoinPool single = new ForkJoinPool(1);
+        List<String> expected = new SemanticAnalyzer(interner).analyze(ast, single);
+        single.shutdown();
+        if (!expected.isEmpty()) {
+            throw new RuntimeException(expected.size() + " diagnostics on a well-typed library, first: " + expected.get(0));
+        }
+        System.out.println("Library checks clean (" + functions + " functions)");
+
+        int cores = Runtime.getRuntime().availableProcessors();
+        for (int parallelism = 1; parallelism <= cores; parallelism = nextParallelism(parallelism, cores)) {
+            ForkJoinPool pool = new ForkJoinPool(parallelism);
+            if (!expected.equals(new SemanticAnalyzer(interner).analyze(ast, pool))) {
+                throw new RuntimeException("Diagnostics differ on " + parallelism + " cores");
+            }
+
+            long best = Long.MAX_VALUE;
+            for (int round = 0; round < 5; round++) {
+                long start = System.nanoTime();
+                new SemanticAnalyzer(interner).analyze(ast, pool);
+                best = Math.min(best, System.nanoTime() - start);
+            }
+            pool.shutdown();
+            System.out.printf("%d cores: %.1f ms, %.0f functions/sec%n", parallelism, best / 1e6,
+                    functions * 1e9 / best);
+        }
+    }
+
+    // Like LazyBodyBenchmark.generateLibrary, but every call passes arguments of the
+    // parameter types and assigns the result to a variable of the return type
+    static String generateLibrary(int functions, int statements) {
+        StringBuilder code = new StringBuilder("main\n{\n  num V_a, text V_m;\n  V_a = input;\n  V_m = \"m\";\n");
+        code.append("  V_a = F_lib0(V_a, 1, V_m);\n  print(V_a);\n");
+        for (int f = 0; f < functions; f++) {
+            code.append("  num F_lib").append(f).append("(num V_x, num V_y, text V_z)\n  {\n    num V_t, text V_s;\n");
+            code.append("    V_s = V_z;\n");
+            for (int i = 0; i < statements; i++) {
+                if (i % 2 == 0) {
+                    code.append("    V_t = F_lib").append((f + i) % functions).append("(V_x, ").append(i).append(", V_s);\n");
+                } else {
+                    code.append("    print(V_t);\n");
+                }
+            }
+            code.append("  }\n");
+        }
+        return code.append("}\n").toString();
+    }
+
+    // Doubles the core count, visiting the total core count last even if it is not a power of two
+    private static int nextParallelism(int parallelism, int cores) {
+        if (parallelism == cores) {
+            return cores + 1;
+        }
+        return Math.min(parallelism * 2, cores);
+    }
+}
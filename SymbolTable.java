@@ -0,0 +1,142 @@
+import java.util.Arrays;
+
+// Block-scoped symbol table over interned identifiers. A single open-addressed table maps
+// each symbol to its innermost binding, and declaring a symbol that is already bound in an
+// outer scope pushes the shadowed binding onto an undo log. Leaving a scope replays the log
+// back to the marker recorded when the scope was entered. Once the arrays have grown to
+// fit, entering and leaving scopes allocates nothing, and a lookup is one probe however
+// deeply the scopes nest.
+public class SymbolTable {
+    private int[] keys = new int[64]; // Symbol + 1, 0 for empty. Keys are never removed.
+    private int[] depths = new int[64]; // Scope holding the binding, or -1 while unbound
+    private String[] types = new String[64];
+    private int size;
+
+    private int[] undoSymbols = new int[64];
+    private int[] undoDepths = new int[64];
+    private String[] undoTypes = new String[64];
+    private int undoSize;
+    private int[] markers = new int[16]; // Undo log size when each open scope was entered
+    private int scopes;
+
+    public void enterScope() {
+        if (scopes == markers.length) {
+            markers = Arrays.copyOf(markers, scopes * 2);
+        }
+        markers[scopes++] = undoSize;
+    }
+
+    // Restores every binding the innermost scope shadowed. False if no scope is open.
+    public boolean exitScope() {
+        if (scopes == 0) {
+            return false;
+        }
+        int marker = markers[--scopes];
+        while (undoSize > marker) {
+            undoSize--;
+            int slot = find(undoSymbols[undoSize]);
+            depths[slot] = undoDepths[undoSize];
+            types[slot] = undoTypes[undoSize];
+            undoTypes[undoSize] = null;
+        }
+        return true;
+    }
+
+    // Number of open scopes; the outermost one has depth 0
+    public int scopes() {
+        return scopes;
+    }
+
+    // Binds the symbol in the innermost scope, replacing any binding it already has there
+    public void declare(int symbol, String type) {
+        if (scopes == 0) {
+            throw new RuntimeException("No open scope to declare symbol " + symbol + " in");
+        }
+        int slot = insert(symbol);
+        int depth = scopes - 1;
+        if (depths[slot] != depth) {
+            if (undoSize == undoSymbols.length) {
+                undoSymbols = Arrays.copyOf(undoSymbols, undoSize * 2);
+                undoDepths = Arrays.copyOf(undoDepths, undoSize * 2);
+                undoTypes = Arrays.copyOf(undoTypes, undoSize * 2);
+            }
+            undoSymbols[undoSize] = symbol;
+            undoDepths[undoSize] = depths[slot];
+            undoTypes[undoSize] = types[slot];
+            undoSize++;
+            depths[slot] = depth;
+        }
+        types[slot] = type;
+    }
+
+    // Depth of the scope the symbol is bound in, or -1 if it is not bound
+    public int depth(int symbol) {
+        int slot = find(symbol);
+        return slot < 0 ? -1 : depths[slot];
+    }
+
+    // Type of the symbol's innermost binding, or null if it is not bound
+    public String type(int symbol) {
+        int slot = find(symbol);
+        return slot < 0 || depths[slot] < 0 ? null : types[slot];
+    }
+
+    private int find(int symbol) {
+        int mask = keys.length - 1;
+        for (int slot = hash(symbol) & mask; ; slot = (slot + 1) & mask) {
+            if (keys[slot] == symbol + 1) {
+                return slot;
+            }
+            if (keys[slot] == 0) {
+                return -1;
+            }
+        }
+    }
+
+    private int insert(int symbol) {
+        int mask = keys.length - 1;
+        int slot = hash(symbol) & mask;
+        while (keys[slot] != 0) {
+            if (keys[slot] == symbol + 1) {
+                return slot;
+            }
+            slot = (slot + 1) & mask;
+        }
+        if (2 * (size + 1) > keys.length) {
+            grow();
+            return insert(symbol);
+        }
+        keys[slot] = symbol + 1;
+        depths[slot] = -1;
+        size++;
+        return slot;
+    }
+
+    private void grow() {
+        int[] oldKeys = keys;
+        int[] oldDepths = depths;
+        String[] oldTypes = types;
+        keys = new int[oldKeys.length * 2];
+        depths = new int[keys.length];
+        types = new String[keys.length];
+        int mask = keys.length - 1;
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] == 0) {
+                continue;
+            }
+            int slot = hash(oldKeys[i] - 1) & mask;
+            while (keys[slot] != 0) {
+                slot = (slot + 1) & mask;
+            }
+            keys[slot] = oldKeys[i];
+            depths[slot] = oldDepths[i];
+            types[slot] = oldTypes[i];
+        }
+    }
+
+    // Interned IDs are dense, so spread them before masking
+    private static int hash(int symbol) {
+        int h = symbol * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+}
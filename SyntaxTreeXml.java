@@ -0,0 +1,125 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.zip.GZIPOutputStream;
+
+// Streams a Parser.Node tree to indented XML. The tree is walked with an explicit stack, so
+// deeply nested trees cannot overflow the call stack, and elements go straight to a
+// buffered writer instead of being built up as a DOM first. Markup is written directly
+// rather than through an XMLStreamWriter, because the JDK's StAX writer keeps its open
+// elements in a stack that breaks past a depth of 32767.
+public class SyntaxTreeXml {
+    private static final int INDENT = 4;
+
+    public static void write(Parser.Node root, String filename, boolean gzip) throws IOException {
+        OutputStream file = Files.newOutputStream(Paths.get(filename));
+        OutputStream out = gzip ? new GZIPOutputStream(file, 1 << 16) : file;
+        try (Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 1 << 16)) {
+            write(root, writer);
+        }
+    }
+
+    // Writes the tree below root; the writer is left open. Null children (such as a Branch
+    // without an else block) are skipped.
+    public static void write(Parser.Node root, Writer writer) throws IOException {
+        writer.write("<?xml version=\"1.0\" encoding=\"UTF-8\" standalone=\"no\"?>\n");
+
+        Parser.Node[] nodes = new Parser.Node[64];
+        int[] nextChild = new int[64];
+        int depth = 0;
+        nodes[0] = root;
+        char[] spaces = new char[0];
+
+        while (depth >= 0) {
+            Parser.Node node = nodes[depth];
+            if (spaces.length < (depth + 1) * INDENT) {
+                spaces = new char[spaces.length * 2 + (depth + 1) * INDENT];
+                Arrays.fill(spaces, ' ');
+            }
+
+            if (nextChild[depth] == 0) {
+                // First visit: open the element, or write it whole if it has no children
+                writer.write(spaces, 0, depth * INDENT);
+                if (!hasChildren(node)) {
+                    if (node.value != null) {
+                        writer.write('<');
+                        writer.write(node.type);
+                        writer.write('>');
+                        writeEscaped(writer, node.value);
+                        writer.write("</");
+                        writer.write(node.type);
+                        writer.write(">\n");
+                    } else {
+                        writer.write('<');
+                        writer.write(node.type);
+                        writer.write("/>\n");
+                    }
+                    depth--;
+                    continue;
+                }
+                writer.write('<');
+                writer.write(node.type);
+                writer.write('>');
+                if (node.value != null) {
+                    writeEscaped(writer, node.value);
+                }
+                writer.write('\n');
+            }
+
+            if (nextChild[depth] < node.children.size()) {
+                Parser.Node child = node.children.get(nextChild[depth]++);
+                if (child != null) {
+                    depth++;
+                    if (depth == nodes.length) {
+                        nodes = Arrays.copyOf(nodes, depth * 2);
+                        nextChild = Arrays.copyOf(nextChild, depth * 2);
+                    }
+                    nodes[depth] = child;
+                    nextChild[depth] = 0;
+                }
+            } else {
+                writer.write(spaces, 0, depth * INDENT);
+                writer.write("</");
+                writer.write(node.type);
+                writer.write(">\n");
+                nodes[depth] = null;
+                depth--;
+            }
+        }
+    }
+
+    private static boolean hasChildren(Parser.Node node) {
+        for (Parser.Node child : node.children) {
+            if (child != null) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void writeEscaped(Writer writer, String text) throws IOException {
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '<':
+                    writer.write("&lt;");
+                    break;
+                case '>':
+                    writer.write("&gt;");
+                    break;
+                case '&':
+                    writer.write("&amp;");
+                    break;
+                default:
+                    writer.write(c);
+                    break;
+            }
+        }
+    }
+}
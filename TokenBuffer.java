@@ -0,0 +1,198 @@
+import java.util.Arrays;
+import java.util.List;
+
+// Struct-of-arrays token stream. Token kinds are stored by TokenType ordinal in a byte[]
+// and the offset, length and interned symbol of each token in parallel int[]s, so a token
+// costs 13 bytes instead of a Token object plus its text. Symbol IDs are only kept when the
+// buffer has an interner to resolve them; without one every token's symbol is -1.
+public class TokenBuffer {
+    private static final TokenType[] TYPES = TokenType.values();
+
+    private final CharSequence source;
+    private final Interner interner;
+    private byte[] kinds;
+    private int[] starts;
+    private int[] lengths;
+    private int[] symbols; // Interned ID of each VNAME/FNAME, -1 for other tokens
+    private int size;
+
+    public TokenBuffer(CharSequence source) {
+        this(source, null, 1024);
+    }
+
+    public TokenBuffer(CharSequence source, Interner interner, int capacity) {
+        this.source = source;
+        this.interner = interner;
+        this.kinds = new byte[Math.max(capacity, 16)];
+        this.starts = new int[kinds.length];
+        this.lengths = new int[kinds.length];
+        this.symbols = new int[kinds.length];
+    }
+
+    // Builds a buffer from Token objects by laying their texts out in a fresh source
+    public static TokenBuffer of(List<Lexer.Token> tokens) {
+        StringBuilder text = new StringBuilder();
+        TokenBuffer buffer = new TokenBuffer(text, null, tokens.size());
+        for (Lexer.Token token : tokens) {
+            String value = token.value();
+            buffer.add(token.type, text.length(), value.length());
+            text.append(value).append(' ');
+        }
+        return buffer;
+    }
+
+    public void add(TokenType type, int start, int length) {
+        add(type, start, length, -1);
+    }
+
+    public void add(TokenType type, int start, int length, int symbol) {
+        if (size == kinds.length) {
+            grow();
+        }
+        kinds[size] = (byte) type.ordinal();
+        starts[size] = start;
+        lengths[size] = length;
+        symbols[size] = interner != null ? symbol : -1;
+        size++;
+    }
+
+    // Appends all tokens of another buffer over the same source
+    public void append(TokenBuffer other) {
+        append(other, 0, other.size, 0);
+    }
+
+    // Appends tokens [from, to) of another buffer with their offsets moved by shift. Names
+    // are interned into this buffer's interner unless the other buffer already used it.
+    public void append(TokenBuffer other, int from, int to, int shift) {
+        int count = to - from;
+        while (size + count > kinds.length) {
+            grow();
+        }
+        System.arraycopy(other.kinds, from, kinds, size, count);
+        System.arraycopy(other.starts, from, starts, size, count);
+        System.arraycopy(other.lengths, from, lengths, size, count);
+        System.arraycopy(other.symbols, from, symbols, size, count);
+        if (shift != 0) {
+            for (int i = size; i < size + count; i++) {
+                starts[i] += shift;
+            }
+        }
+        if (interner == null) {
+            Arrays.fill(symbols, size, size + count, -1); // IDs of another interner mean nothing here
+        } else if (other.interner != interner) {
+            for (int i = size; i < size + count; i++) {
+                TokenType type = TYPES[kinds[i]];
+                if (type == TokenType.VNAME || type == TokenType.FNAME) {
+                    symbols[i] = interner.intern(source, starts[i], lengths[i]);
+                }
+            }
+        }
+        size += count;
+    }
+
+    // Capacity doubles so appending stays amortised O(1)
+    private void grow() {
+        int capacity = kinds.length * 2;
+        kinds = Arrays.copyOf(kinds, capacity);
+        starts = Arrays.copyOf(starts, capacity);
+        lengths = Arrays.copyOf(lengths, capacity);
+        symbols = Arrays.copyOf(symbols, capacity);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    // Kind of the token at the given index, or EOF past the end of the stream
+    public TokenType type(int index) {
+        return index < size ? TYPES[kinds[index]] : TokenType.EOF;
+    }
+
+    public int start(int index) {
+        return index < size ? starts[index] : source.length();
+    }
+
+    public int length(int index) {
+        return index < size ? lengths[index] : 0;
+    }
+
+    public int symbol(int index) {
+        return index < size ? symbols[index] : -1;
+    }
+
+    // Interned names share the interner's String instead of copying the source again
+    public String text(int index) {
+        int symbol = symbol(index);
+        if (symbol >= 0) {
+            return interner.name(symbol);
+        }
+        return Lexer.text(type(index), source, start(index), length(index));
+    }
+
+    public Lexer.Token get(int index) {
+        return new Lexer.Token(type(index), source, start(index), length(index));
+    }
+
+    public CharSequence source() {
+        return source;
+    }
+
+    public Interner interner() {
+        return interner;
+    }
+
+    // Cursor over the buffer starting at the given token index
+    public Cursor cursor(int index) {
+        return new Cursor(index);
+    }
+
+    public class Cursor implements TokenSource {
+        private int index;
+
+        private Cursor(int index) {
+            this.index = index;
+        }
+
+        public int index() {
+            return index;
+        }
+
+        public void seek(int index) {
+            this.index = index;
+        }
+
+        public TokenBuffer buffer() {
+            return TokenBuffer.this;
+        }
+
+        @Override
+        public TokenType type() {
+            return TokenBuffer.this.type(index);
+        }
+
+        @Override
+        public String text() {
+            return TokenBuffer.this.text(index);
+        }
+
+        @Override
+        public int start() {
+            return TokenBuffer.this.start(index);
+        }
+
+        @Override
+        public int length() {
+            return TokenBuffer.this.length(index);
+        }
+
+        @Override
+        public int symbol() {
+            return TokenBuffer.this.symbol(index);
+        }
+
+        @Override
+        public void advance() {
+            index++;
+        }
+    }
+}
@@ -0,0 +1,17 @@
+// Forward-only view of a token stream as the Parser consumes it. At the end of the
+// stream type() keeps returning EOF.
+public interface TokenSource {
+    TokenType type();
+
+    String text();
+
+    int start();
+
+    int length();
+
+    // Interned ID of the current VNAME/FNAME, or -1 when the token is not a name or
+    // names are not being interned
+    int symbol();
+
+    void advance();
+}
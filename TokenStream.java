@@ -0,0 +1,77 @@
+// Pulls tokens lazily from a Lexer through a small lookahead ring buffer, so a token is
+// dropped as soon as the parser has consumed it and parsing can start before lexing ends.
+public class TokenStream implements TokenSource {
+    private static final int CAPACITY = 4; // Power of two, bounds the lookahead
+
+    private final Lexer lexer;
+    private final TokenType[] kinds = new TokenType[CAPACITY];
+    private final int[] starts = new int[CAPACITY];
+    private final int[] lengths = new int[CAPACITY];
+    private final int[] symbols = new int[CAPACITY];
+    private int head; // Slot of the current token
+    private int count; // Number of tokens lexed but not yet consumed
+
+    public TokenStream(Lexer lexer) {
+        this.lexer = lexer;
+    }
+
+    // Kind of the token k positions ahead of the current one
+    public TokenType peek(int k) {
+        if (k >= CAPACITY) {
+            throw new IllegalArgumentException("Lookahead " + k + " exceeds ring capacity " + CAPACITY);
+        }
+        fill(k);
+        return kinds[(head + k) & (CAPACITY - 1)];
+    }
+
+    @Override
+    public TokenType type() {
+        return peek(0);
+    }
+
+    @Override
+    public String text() {
+        fill(0);
+        if (symbols[head] >= 0) {
+            return lexer.interner().name(symbols[head]);
+        }
+        return Lexer.text(kinds[head], lexer.source(), starts[head], lengths[head]);
+    }
+
+    @Override
+    public int start() {
+        fill(0);
+        return starts[head];
+    }
+
+    @Override
+    public int length() {
+        fill(0);
+        return lengths[head];
+    }
+
+    @Override
+    public int symbol() {
+        fill(0);
+        return symbols[head];
+    }
+
+    @Override
+    public void advance() {
+        fill(0);
+        head = (head + 1) & (CAPACITY - 1);
+        count--;
+    }
+
+    // Lexes until the token k positions ahead is in the ring
+    private void fill(int k) {
+        while (count <= k) {
+            int slot = (head + count) & (CAPACITY - 1);
+            kinds[slot] = lexer.nextKind();
+            starts[slot] = lexer.tokenStart();
+            lengths[slot] = lexer.tokenLength();
+            symbols[slot] = lexer.tokenSymbol();
+            count++;
+        }
+    }
+}
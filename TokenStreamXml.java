@@ -0,0 +1,118 @@
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLOutputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import javax.xml.stream.XMLStreamWriter;
+
+// Streams a token stream to TOKENSTREAM XML and back. Each <TOK> is written as soon as its
+// token is read, so memory use stays constant however many tokens there are.
+public class TokenStreamXml {
+
+    public static void write(TokenSource tokens, String filename) throws IOException {
+        try (OutputStream out = new BufferedOutputStream(Files.newOutputStream(Paths.get(filename)), 1 << 16)) {
+            write(tokens, out);
+        }
+    }
+
+    // Writes every token up to EOF; the output stream is left open
+    public static void write(TokenSource tokens, OutputStream out) throws IOException {
+        try {
+            XMLStreamWriter writer = XMLOutputFactory.newInstance().createXMLStreamWriter(out, "UTF-8");
+            writer.writeStartDocument("UTF-8", "1.0");
+            writer.writeStartElement("TOKENSTREAM");
+            for (int id = 1; tokens.type() != TokenType.EOF; id++) {
+                writer.writeStartElement("TOK");
+                writeElement(writer, "ID", String.valueOf(id));
+                writeElement(writer, "CLASS", tokens.type().toString());
+                writeElement(writer, "WORD", tokens.text());
+                writer.writeEndElement();
+                tokens.advance();
+            }
+            writer.writeEndElement();
+            writer.writeEndDocument();
+            writer.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Error writing token stream: " + e.getMessage(), e);
+        }
+    }
+
+    public static TokenBuffer read(String filename, Interner interner) throws IOException {
+        try (InputStream in = new BufferedInputStream(Files.newInputStream(Paths.get(filename)), 1 << 16)) {
+            return read(in, interner);
+        }
+    }
+
+    // Pulls <TOK> elements one at a time into a TokenBuffer ready for the parser. The WORD
+    // texts are laid out space-separated in a fresh source and names are interned as they
+    // are read; the ID elements are ignored since tokens are kept in document order.
+    public static TokenBuffer read(InputStream in, Interner interner) throws IOException {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        StringBuilder text = new StringBuilder();
+        TokenBuffer buffer = new TokenBuffer(text, interner, 1024);
+        try {
+            XMLStreamReader reader = factory.createXMLStreamReader(in);
+            if (reader.nextTag() != XMLStreamConstants.START_ELEMENT || !reader.getLocalName().equals("TOKENSTREAM")) {
+                throw new IOException("Expected <TOKENSTREAM> but found " + describe(reader));
+            }
+            while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                if (!reader.getLocalName().equals("TOK")) {
+                    throw new IOException("Expected <TOK> but found " + describe(reader));
+                }
+                TokenType type = null;
+                String word = null;
+                while (reader.nextTag() == XMLStreamConstants.START_ELEMENT) {
+                    String name = reader.getLocalName();
+                    String value = reader.getElementText();
+                    if (name.equals("CLASS")) {
+                        type = tokenType(value, reader);
+                    } else if (name.equals("WORD")) {
+                        word = value;
+                    }
+                }
+                if (type == null || word == null) {
+                    throw new IOException("Token without CLASS or WORD at line " + reader.getLocation().getLineNumber());
+                }
+                int start = text.length();
+                text.append(word).append(' ');
+                int symbol = -1;
+                if (interner != null && (type == TokenType.VNAME || type == TokenType.FNAME)) {
+                    symbol = interner.intern(word);
+                }
+                buffer.add(type, start, word.length(), symbol);
+            }
+            reader.close();
+        } catch (XMLStreamException e) {
+            throw new IOException("Error reading token stream: " + e.getMessage(), e);
+        }
+        return buffer;
+    }
+
+    private static TokenType tokenType(String name, XMLStreamReader reader) throws IOException {
+        try {
+            return TokenType.valueOf(name.trim());
+        } catch (IllegalArgumentException e) {
+            throw new IOException("Unknown token class '" + name + "' at line " + reader.getLocation().getLineNumber());
+        }
+    }
+
+    private static String describe(XMLStreamReader reader) {
+        return reader.isStartElement() ? "<" + reader.getLocalName() + ">" : "end of element";
+    }
+
+    private static void writeElement(XMLStreamWriter writer, String name, String text) throws XMLStreamException {
+        writer.writeStartElement(name);
+        writer.writeCharacters(text);
+        writer.writeEndElement();
+    }
+}
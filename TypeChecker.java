@@ -1,32 +1,74 @@
 import java.util.*;
 
+// Variables and functions are kept in arrays indexed by interned symbol ID. The by-name
+// methods intern or look the name up first, so they share the tables with callers that
+// pass symbol IDs from the same interner.
 public class TypeChecker {
-    private Map<String, String> symbolTable; // Stores variable types
-    private Map<String, FunctionSignature> functionTable; // Stores function signatures
+    private final Interner interner;
+    private String[] variableTypes = new String[64]; // By symbol, null when not declared
+    private FunctionSignature[] functions = new FunctionSignature[64]; // Same
 
     public TypeChecker() {
-        this.symbolTable = new HashMap<>();
-        this.functionTable = new HashMap<>();
+        this(new Interner());
+    }
+
+    public TypeChecker(Interner interner) {
+        this.interner = interner != null ? interner : new Interner();
     }
 
     // Declare a variable with its type
     public void declareVariable(String varName, String varType) {
-        symbolTable.put(varName, varType);
+        declareVariable(interner.intern(varName), varType);
     }
 
     // Get the type of a declared variable
     public String getVariableType(String varName) {
-        return symbolTable.get(varName);
+        return getVariableType(interner.lookup(varName));
+    }
+
+    // Declare a variable by its interned symbol ID (see Interner)
+    public void declareVariable(int symbol, String varType) {
+        if (symbol >= variableTypes.length) {
+            variableTypes = Arrays.copyOf(variableTypes, Math.max(symbol + 1, variableTypes.length * 2));
+        }
+        variableTypes[symbol] = varType;
+    }
+
+    // Get the type of a variable declared by symbol ID, or null if it is not declared
+    public String getVariableType(int symbol) {
+        return symbol >= 0 && symbol < variableTypes.length ? variableTypes[symbol] : null;
     }
 
     // Declare a function with its signature (return type + parameter types)
     public void declareFunction(String funcName, String returnType, List<String> paramTypes) {
-        functionTable.put(funcName, new FunctionSignature(returnType, paramTypes));
+        declareFunction(interner.intern(funcName), returnType, paramTypes);
     }
 
-    // Get the return type of a function
+    // Get the return type of a function, or null if it is not declared
     public String getFunctionReturnType(String funcName) {
-        return functionTable.get(funcName).returnType;
+        return getFunctionReturnType(interner.lookup(funcName));
+    }
+
+    // Declare a function by its interned symbol ID
+    public void declareFunction(int symbol, String returnType, List<String> paramTypes) {
+        if (symbol >= functions.length) {
+            functions = Arrays.copyOf(functions, Math.max(symbol + 1, functions.length * 2));
+        }
+        functions[symbol] = new FunctionSignature(returnType, paramTypes);
+    }
+
+    // Get the return type of a function declared by symbol ID, or null if it is not declared
+    public String getFunctionReturnType(int symbol) {
+        FunctionSignature signature = function(symbol);
+        return signature != null ? signature.returnType : null;
+    }
+
+    private FunctionSignature function(String funcName) {
+        return function(interner.lookup(funcName));
+    }
+
+    private FunctionSignature function(int symbol) {
+        return symbol >= 0 && symbol < functions.length ? functions[symbol] : null;
     }
 
     // Check if two types are compatible
@@ -76,7 +118,10 @@ public class TypeChecker {
     }
 
     public void validateFunctionReturn(String funcName, String actualReturnType) {
-        String expectedReturnType = functionTable.get(funcName).returnType;
+        String expectedReturnType = getFunctionReturnType(funcName);
+        if (expectedReturnType == null) {
+            throw new RuntimeException("Function '" + funcName + "' is not declared.");
+        }
         if (!checkTypeCompatibility(expectedReturnType, actualReturnType)) {
             throw new RuntimeException("Type error: Function '" + funcName + "' returns " + actualReturnType
                     + " but expected " + expectedReturnType);
@@ -94,11 +139,10 @@ public class TypeChecker {
 
     // Check a function call's parameter types
     public void checkFunctionCall(String funcName, List<String> argTypes) {
-        if (!functionTable.containsKey(funcName)) {
+        FunctionSignature signature = function(funcName);
+        if (signature == null) {
             throw new RuntimeException("Function '" + funcName + "' is not declared.");
         }
-
-        FunctionSignature signature = functionTable.get(funcName);
         List<String> expectedTypes = signature.paramTypes;
 
         if (expectedTypes.size() != argTypes.size()) {
@@ -130,7 +174,7 @@ public class TypeChecker {
     }
 
     public void checkVoidFunctionAssignment(String funcName) {
-        if (functionTable.containsKey(funcName) && functionTable.get(funcName).returnType.equals("void")) {
+        if ("void".equals(getFunctionReturnType(funcName))) {
             throw new RuntimeException(
                     "Type error: Cannot assign result of void function '" + funcName + "' to a variable.");
         }